@@ -0,0 +1,37 @@
+package io.pivotal.reactive;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Without arguments, runs all benchmarks single-threaded and then with one
+ * thread per core, with the GC profiler reporting allocation rates
+ * (gc.alloc.rate.norm is bytes allocated per operation). With arguments,
+ * behaves like the regular JMH launcher.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		run(1);
+		run(Runtime.getRuntime()
+				   .availableProcessors());
+	}
+
+	private static void run(int threads) throws RunnerException {
+		Options options = new OptionsBuilder()	.include(MovieRepositoryBenchmark.class.getSimpleName())
+												.include(MovieChangeFeedBenchmark.class.getSimpleName())
+												.include(MovieTableBenchmark.class.getSimpleName())
+												.threads(threads)
+												.addProfiler(GCProfiler.class)
+												.build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,71 @@
+package io.pivotal.reactive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+/**
+ * Cost that {@link InMemoryMovieRepository#changes()} subscribers add to a
+ * write; 0 subscribers is the baseline that must stay close to a plain save.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieChangeFeedBenchmark {
+
+	@Param({ "0", "1", "4" })
+	int changeSubscribers;
+
+	InMemoryMovieRepository repository;
+	List<Disposable> subscriptions = new ArrayList<>();
+	Movie movie = new Movie("benchmark", "action");
+
+	@Setup(Level.Iteration)
+	public void subscribe() {
+		repository = new InMemoryMovieRepository();
+		for (int i = 0; i < changeSubscribers; i++) {
+			subscriptions.add(repository.changes()
+										.subscribe());
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void unsubscribe() {
+		subscriptions.forEach(Disposable::dispose);
+		subscriptions.clear();
+		repository.close();
+	}
+
+	@Benchmark
+	public void saveMovie() {
+		repository.saveMovie(Mono.just(movie))
+				  .block();
+	}
+
+	@Benchmark
+	public Movie updateMovie() {
+		return repository.updateMovie(1, Mono.just(movie))
+						 .block();
+	}
+
+}
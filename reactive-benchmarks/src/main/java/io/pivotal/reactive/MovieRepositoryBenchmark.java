@@ -0,0 +1,110 @@
+package io.pivotal.reactive;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Throughput of the {@link InMemoryMovieRepository} operations. The thread
+ * count is chosen by {@link BenchmarkRunner} (or -t), so every benchmark here
+ * is measured both uncontended and with all cores hitting one repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieRepositoryBenchmark {
+
+	private static final int PARALLEL_SUBSCRIBERS = 4;
+
+	@Param({ "1000", "100000" })
+	int catalogSize;
+
+	InMemoryMovieRepository repository;
+	Movie movie = new Movie("benchmark", "action");
+
+	// A fresh catalog per iteration keeps saveMovie from growing it without bound
+	@Setup(Level.Iteration)
+	public void createRepository() {
+		repository = new InMemoryMovieRepository();
+		repository.saveAll(Flux.range(0, catalogSize)
+							   .map(i -> new Movie("movie" + i, i % 2 == 0 ? "action" : "drama")))
+				  .blockLast();
+	}
+
+	@TearDown(Level.Iteration)
+	public void closeRepository() {
+		repository.close();
+	}
+
+	@Benchmark
+	public Movie getMovie() {
+		return repository.getMovie(randomId())
+						 .block();
+	}
+
+	@Benchmark
+	public void allMovies(Blackhole blackhole) {
+		repository.allMovies()
+				  .subscribe(blackhole::consume);
+	}
+
+	/**
+	 * Several subscribers reading the whole catalog at once on the parallel
+	 * scheduler, as an in-process cache under load would see.
+	 */
+	@Benchmark
+	public Long allMoviesParallelSubscribers() {
+		return Flux.range(0, PARALLEL_SUBSCRIBERS)
+				   .flatMap(i -> repository.allMovies()
+										   .subscribeOn(Schedulers.parallel())
+										   .count())
+				   .reduce(0L, Long::sum)
+				   .block();
+	}
+
+	@Benchmark
+	public void saveMovie() {
+		repository.saveMovie(Mono.just(movie))
+				  .block();
+	}
+
+	// updateMovie is implemented with doOnNext, updateMovie2 with map
+	@Benchmark
+	public Movie updateMovieDoOnNext() {
+		return repository.updateMovie(randomId(), Mono.just(movie))
+						 .block();
+	}
+
+	@Benchmark
+	public Movie updateMovieMap() {
+		return repository.updateMovie2(randomId(), Mono.just(movie))
+						 .block();
+	}
+
+	private int randomId() {
+		return ThreadLocalRandom.current()
+								.nextInt(1, catalogSize + 1);
+	}
+
+}
@@ -0,0 +1,56 @@
+package io.pivotal.reactive;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Heap cost of {@link MovieTable} against the boxed HashMap it replaced.
+ * Both are filled with one shared movie, so with the GC profiler
+ * gc.alloc.rate.norm divided by {@code entries} approximates the bytes per
+ * key and entry, plus the garbage left by growing the table or map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieTableBenchmark {
+
+	@Param({ "100000", "1000000" })
+	int entries;
+
+	Movie movie = new Movie("benchmark", "action");
+
+	// Returned as Object since the generated code lives outside this package
+	@Benchmark
+	public Object fillMovieTable() {
+		MovieTable table = new MovieTable();
+		for (int id = 1; id <= entries; id++) {
+			table.put(id, movie);
+		}
+		return table;
+	}
+
+	@Benchmark
+	public Map<Integer, Movie> fillHashMap() {
+		Map<Integer, Movie> map = new HashMap<>();
+		for (int id = 1; id <= entries; id++) {
+			map.put(id, movie);
+		}
+		return map;
+	}
+
+}
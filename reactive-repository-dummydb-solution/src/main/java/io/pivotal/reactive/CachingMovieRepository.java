@@ -0,0 +1,240 @@
+package io.pivotal.reactive;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Read-through cache in front of a slower {@link MovieRepository}.
+ * <p>
+ * Entries are evicted by size (Caffeine's W-TinyLFU policy) and expire
+ * after a time to live chosen per id when they are loaded. The cache holds
+ * the {@code Mono} of the load itself, turned hot with {@link Mono#cache()},
+ * so concurrent misses for the same id share a single call to the delegate.
+ * Loads that come back empty or fail are dropped again so they are retried
+ * next time.
+ * <p>
+ * Writes made through this decorator invalidate the affected ids once the
+ * delegate is done and before the caller hears back. A load that was already
+ * reading when such a write finished is not kept either, since it may have
+ * read the movie as it was before. Writes made directly on the delegate are
+ * only picked up once the entry expires. Bind it to a MeterRegistry to
+ * publish the hit and miss statistics.
+ */
+public class CachingMovieRepository implements MovieRepository, MeterBinder {
+
+	static final String CACHE_NAME = "movies";
+	static final int WRITE_GENERATIONS = 64;
+
+	private final MovieRepository delegate;
+	private final Cache<Integer, Mono<Movie>> cache;
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder loadNanos = new LongAdder();
+	// Bumped by every write, striped by id; a load that sees its stripe move
+	// while it was reading is not kept
+	private final AtomicLongArray writeGenerations = new AtomicLongArray(WRITE_GENERATIONS);
+
+	public CachingMovieRepository(MovieRepository delegate, long maximumSize, Duration timeToLive) {
+		this(delegate, maximumSize, id -> timeToLive);
+	}
+
+	public CachingMovieRepository(MovieRepository delegate, long maximumSize,
+			Function<Integer, Duration> timeToLive) {
+		this.delegate = delegate;
+		this.cache = Caffeine.newBuilder()
+							 .maximumSize(maximumSize)
+							 .expireAfter(new Expiry<Integer, Mono<Movie>>() {
+								 @Override
+								 public long expireAfterCreate(Integer id, Mono<Movie> movie, long currentTime) {
+									 return timeToLive	.apply(id)
+														.toNanos();
+								 }
+
+								 @Override
+								 public long expireAfterUpdate(Integer id, Mono<Movie> movie, long currentTime,
+										 long currentDuration) {
+									 return expireAfterCreate(id, movie, currentTime);
+								 }
+
+								 @Override
+								 public long expireAfterRead(Integer id, Mono<Movie> movie, long currentTime,
+										 long currentDuration) {
+									 return currentDuration;
+								 }
+							 })
+							 .recordStats()
+							 .build();
+	}
+
+	@Override
+	public Mono<Movie> getMovie(int id) {
+		return Mono.defer(() -> cache.get(id, this::load));
+	}
+
+	@Override
+	public Flux<Movie> allMovies() {
+		return delegate.allMovies();
+	}
+
+	@Override
+	public Mono<Void> saveMovie(Mono<Movie> movie) {
+		return delegate.saveMovie(movie);
+	}
+
+	@Override
+	public Mono<Void> deleteMovie(int id) {
+		return invalidating(id, delegate.deleteMovie(id));
+	}
+
+	@Override
+	public Mono<Movie> updateMovie(int id, Mono<Movie> movie) {
+		return invalidating(id, delegate.updateMovie(id, movie));
+	}
+
+	@Override
+	public Mono<Movie> updateMovie(int id, long expectedVersion, Mono<Movie> movie) {
+		return invalidating(id, delegate.updateMovie(id, expectedVersion, movie));
+	}
+
+	@Override
+	public Flux<Integer> saveAll(Flux<Movie> movies) {
+		return delegate.saveAll(movies);
+	}
+
+	/**
+	 * Ids are invalidated as they pass and once more after the delegate is
+	 * done, since a read between the two may have cached a movie that was
+	 * about to be deleted.
+	 */
+	@Override
+	public Mono<Void> deleteAll(Flux<Integer> ids) {
+		return Mono.defer(() -> {
+			Set<Integer> deleted = ConcurrentHashMap.newKeySet();
+			Flux<Integer> invalidated = ids.doOnNext(id -> {
+				deleted.add(id);
+				invalidate(id);
+			});
+			return delegate	.deleteAll(invalidated)
+							.doOnTerminate(() -> deleted.forEach(this::invalidate))
+							.doOnCancel(() -> deleted.forEach(this::invalidate));
+		});
+	}
+
+	@Override
+	public Flux<Movie> findByGenre(String genre) {
+		return delegate.findByGenre(genre);
+	}
+
+	@Override
+	public Flux<Movie> moviesPage(int afterId, int limit) {
+		return delegate.moviesPage(afterId, limit);
+	}
+
+	@Override
+	public Flux<Movie> moviesInRange(int fromId, int toId) {
+		return delegate.moviesInRange(fromId, toId);
+	}
+
+	@Override
+	public Flux<MovieChange> changes() {
+		return delegate.changes();
+	}
+
+	public long hitCount() {
+		return cache.stats()
+					.hitCount();
+	}
+
+	public long missCount() {
+		return cache.stats()
+					.missCount();
+	}
+
+	public double hitRate() {
+		return cache.stats()
+					.hitRate();
+	}
+
+	public long evictionCount() {
+		return cache.stats()
+					.evictionCount();
+	}
+
+	/**
+	 * Publishes the Caffeine statistics (cache.gets, cache.evictions, ...)
+	 * tagged with {@code cache=movies}, plus the time the delegate took to
+	 * answer misses as {@code movies.cache.load}.
+	 */
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+		FunctionTimer	.builder("movies.cache.load", this, repository -> repository.loads.sum(),
+								repository -> repository.loadNanos.sum(), TimeUnit.NANOSECONDS)
+						.description("Time the delegate took to answer a cache miss")
+						.register(registry);
+	}
+
+	/**
+	 * Mean time the delegate took to answer a miss, measured from
+	 * subscription to completion of the load.
+	 */
+	public Duration averageMissLatency() {
+		long count = loads.sum();
+		return count == 0 ? Duration.ZERO : Duration.ofNanos(loadNanos.sum() / count);
+	}
+
+	// Invalidates in doOnTerminate rather than doFinally, so a caller that
+	// reads the movie as soon as its write completes never sees the old one
+	private <T> Mono<T> invalidating(int id, Mono<T> write) {
+		return write.doOnTerminate(() -> invalidate(id))
+					.doOnCancel(() -> invalidate(id));
+	}
+
+	private void invalidate(int id) {
+		writeGenerations.incrementAndGet(id & (WRITE_GENERATIONS - 1));
+		cache.invalidate(id);
+	}
+
+	private Mono<Movie> load(Integer id) {
+		AtomicReference<Mono<Movie>> self = new AtomicReference<>();
+		Mono<Movie> loading = Mono.defer(() -> {
+			long generation = writeGenerations.get(id & (WRITE_GENERATIONS - 1));
+			long start = System.nanoTime();
+			return delegate.getMovie(id)
+						   .doFinally(signal -> {
+							   loads.increment();
+							   loadNanos.add(System.nanoTime() - start);
+						   })
+						   .doOnSuccess(movie -> {
+							   if (movie == null
+									   || writeGenerations.get(id & (WRITE_GENERATIONS - 1)) != generation) {
+								   cache.asMap()
+										.remove(id, self.get());
+							   }
+						   });
+		})
+								  .doOnError(error -> cache.asMap()
+														   .remove(id, self.get()))
+								  .cache();
+		self.set(loading);
+		return loading;
+	}
+
+}
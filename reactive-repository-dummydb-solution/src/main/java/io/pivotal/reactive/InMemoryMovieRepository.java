@@ -1,22 +1,92 @@
 package io.pivotal.reactive;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Component;
 
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.DirectProcessor;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
 
 @Component
-public class InMemoryMovieRepository implements MovieRepository {
+public class InMemoryMovieRepository implements MovieRepository, Closeable {
 
-	private Map<Integer, Movie> movies = new HashMap<>();
+	static final int DEFAULT_BATCH_SIZE = 1000;
+	static final int CHANGE_BUFFER_SIZE = 256;
+	static final int WRITE_STRIPES = 64;
+
+	// Ids come from a sequence rather than movies.size() so that a delete
+	// followed by a save can never hand out an id that is still in use
+	private final AtomicInteger idSequence = new AtomicInteger();
+	private final MovieTable movies;
+	// Only set in durability mode, see InMemoryMovieRepository(Path)
+	private final MovieJournal journal;
+	// In durability mode a write holds the stripe of its id from the table
+	// update until its journal append, so the log records the writes to one
+	// id in the order the table applied them
+	private final Object[] writeStripes;
+	// Inverted genre -> ids index kept in step with every write
+	private final ConcurrentMap<String, Set<Integer>> genreIndex = new ConcurrentHashMap<>();
+	private volatile int batchSize = DEFAULT_BATCH_SIZE;
+	// Hot, unbuffered fan-out of changes; each subscriber gets its own bounded
+	// buffer in changes(). The sink serializes concurrent writers without
+	// blocking them.
+	private final DirectProcessor<MovieChange> changeProcessor = DirectProcessor.create();
+	private final FluxSink<MovieChange> changeSink = changeProcessor.sink();
 
 	public InMemoryMovieRepository() {
-		this.movies.put(1, new Movie("avengers", "action"));
-		this.movies.put(2, new Movie("jaws", "other"));
-		this.movies.put(3, new Movie("iron man", "action"));
+		this.movies = new MovieTable();
+		this.journal = null;
+		this.writeStripes = null;
+		seed();
+	}
+
+	/**
+	 * Creates a repository whose writes are journaled to the given directory
+	 * and which starts from whatever a previous instance left there. The
+	 * sample movies are only added when the directory holds no catalog yet.
+	 */
+	public InMemoryMovieRepository(Path directory) {
+		this(directory, new MovieJournal(directory));
+	}
+
+	InMemoryMovieRepository(Path directory, MovieJournal journal) {
+		this.journal = journal;
+		this.writeStripes = new Object[WRITE_STRIPES];
+		for (int i = 0; i < WRITE_STRIPES; i++) {
+			this.writeStripes[i] = new Object();
+		}
+		try {
+			this.movies = this.journal.recover();
+		}
+		catch (IOException e) {
+			this.journal.close();
+			throw new UncheckedIOException("Could not recover movies from " + directory, e);
+		}
+		this.idSequence.set(this.journal.highestId());
+		this.movies.forEach(this::index);
+		if (this.idSequence.get() == 0) {
+			seed();
+		}
+	}
+
+	private void seed() {
+		store(this.idSequence.incrementAndGet(), new Movie("avengers", "action"));
+		store(this.idSequence.incrementAndGet(), new Movie("jaws", "other"));
+		store(this.idSequence.incrementAndGet(), new Movie("iron man", "action"));
 	}
 
 	@Override
@@ -24,46 +94,323 @@ public class InMemoryMovieRepository implements MovieRepository {
 		return Mono.justOrEmpty(this.movies.get(id));
 	}
 
+	/**
+	 * Emits a snapshot of the movies taken at subscription time, so writes
+	 * made by other subscribers while this one is being served are not seen.
+	 */
 	@Override
 	public Flux<Movie> allMovies() {
-		return Flux.fromIterable(this.movies.values());
+		return Flux.defer(() -> Flux.fromIterable(this.movies.snapshot()));
+	}
+
+	/**
+	 * Emits up to {@code limit} movies whose id is greater than
+	 * {@code afterId}; pass the id of the last movie received to get the next
+	 * page.
+	 */
+	@Override
+	public Flux<Movie> moviesPage(int afterId, int limit) {
+		if (limit < 0) {
+			return Flux.error(new IllegalArgumentException("Limit must not be negative: " + limit));
+		}
+		if (afterId == Integer.MAX_VALUE) {
+			return Flux.empty();
+		}
+		return moviesInRange(afterId + 1, Integer.MAX_VALUE).take(limit);
+	}
+
+	/**
+	 * Emits the movies with {@code fromId <= id <= toId}. The table is walked
+	 * one movie per request, so nothing beyond the requested items is read.
+	 */
+	@Override
+	public Flux<Movie> moviesInRange(int fromId, int toId) {
+		return Flux.generate(() -> fromId, (Integer cursor, SynchronousSink<Movie> sink) -> {
+			int id = cursor;
+			while (true) {
+				id = movies.nextId(id, toId);
+				if (id < 0) {
+					sink.complete();
+					return cursor;
+				}
+				// The movie may have been deleted since nextId saw it
+				Movie movie = movies.get(id);
+				if (movie != null) {
+					sink.next(movie);
+					if (id >= toId) {
+						sink.complete();
+					}
+					return id + 1;
+				}
+				if (id >= toId) {
+					sink.complete();
+					return cursor;
+				}
+				id++;
+			}
+		});
+	}
+
+	/**
+	 * Streams changes made after subscription. Every subscriber has its own
+	 * buffer of {@link #CHANGE_BUFFER_SIZE} changes; a subscriber that falls
+	 * further behind loses its oldest buffered changes rather than slowing
+	 * down writers or the other subscribers.
+	 */
+	@Override
+	public Flux<MovieChange> changes() {
+		return changeProcessor.onBackpressureBuffer(CHANGE_BUFFER_SIZE, dropped -> {
+		}, BufferOverflowStrategy.DROP_OLDEST);
+	}
+
+	/**
+	 * Looks the genre up in the index, so the cost is proportional to the
+	 * number of matching movies rather than to the size of the catalog.
+	 */
+	@Override
+	public Flux<Movie> findByGenre(String genre) {
+		return Flux.defer(() -> Flux.fromIterable(this.genreIndex.getOrDefault(genre, Collections.emptySet())))
+				   .handle((id, sink) -> {
+					   // Re-check the genre in case a concurrent update moved the
+					   // movie after the index was read
+					   Movie movie = this.movies.get(id);
+					   if (movie != null && genre.equals(movie.getGenre())) {
+						   sink.next(movie);
+					   }
+				   });
 	}
 
 	@Override
 	public Mono<Void> saveMovie(Mono<Movie> movieMono) {
-		return movieMono.doOnNext(movie -> {
-			int id = movies.size() + 1;
-			movies.put(id, movie);
-			System.out.format("Saved %s with id %d%n", movie, id);
-		})
-						.then(Mono.empty());
+		return movieMono.doOnNext(movie -> store(idSequence.incrementAndGet(), movie))
+						.then(durable());
 	}
 
 	@Override
 	public Mono<Void> deleteMovie(int id) {
-		movies.remove(id);
-		return Mono.empty();
+		return Mono.fromRunnable(() -> evict(id))
+				   .then(durable());
+	}
+
+	/**
+	 * Saves the movies in batches of {@link #setBatchSize(int) batchSize} and
+	 * emits the id assigned to each movie, in order. Each batch reserves its
+	 * whole id range with a single atomic increment.
+	 */
+	@Override
+	public Flux<Integer> saveAll(Flux<Movie> movieFlux) {
+		return saveAll(movieFlux, this.batchSize);
+	}
+
+	public Flux<Integer> saveAll(Flux<Movie> movieFlux, int batchSize) {
+		return movieFlux.buffer(batchSize)
+						.concatMap(batch -> {
+							int firstId = commit(batch);
+							return durable().thenMany(Flux.range(firstId, batch.size()));
+						});
+	}
+
+	@Override
+	public Mono<Void> deleteAll(Flux<Integer> ids) {
+		return ids.buffer(this.batchSize)
+				  .concatMap(batch -> {
+					  batch.forEach(this::evict);
+					  return durable();
+				  })
+				  .then();
+	}
+
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+		}
+		this.batchSize = batchSize;
+	}
+
+	private int commit(List<Movie> batch) {
+		int firstId = idSequence.getAndAdd(batch.size()) + 1;
+		for (int i = 0; i < batch.size(); i++) {
+			store(firstId + i, batch.get(i));
+		}
+		return firstId;
 	}
 
 	// DONE-reactive-repository-dummydb-02: Do the following
 	// - Implement updateMovie method
 	@Override
 	public Mono<Movie> updateMovie(int id, Mono<Movie> movieMono) {
-		return movieMono.doOnNext(movie -> {
-			movies.put(id, movie);
-			System.out.format("Updated %s with id %d%n", movie, id);
+		return movieMono.doOnNext(movie -> store(id, movie))
+						.delayUntil(movie -> durable());
+	}
+
+	/**
+	 * Replaces the movie only if its version is still the expected one. The
+	 * check and the write are a single compare-and-set on the table slot, so
+	 * in memory-only mode concurrent updaters never need a lock and exactly
+	 * one of them wins. Emits the stored movie with its new version, or
+	 * nothing if the id is unknown.
+	 */
+	@Override
+	public Mono<Movie> updateMovie(int id, long expectedVersion, Mono<Movie> movieMono) {
+		return movieMono.flatMap(movie -> {
+			Movie updated;
+			if (journal == null) {
+				updated = replace(id, expectedVersion, movie);
+			}
+			else {
+				synchronized (writeStripe(id)) {
+					updated = replace(id, expectedVersion, movie);
+				}
+			}
+			return updated == null ? Mono.empty() : durable().thenReturn(updated);
 		});
 	}
-	
-	// - Also try to reimplement it using map operator 
+
+	// - Also try to reimplement it using map operator
 	public Mono<Movie> updateMovie2(int id, Mono<Movie> movieMono) {
-		
-		return movieMono.map(movie -> {
-			movies.put(id, movie);
-			System.out.format("Updated %s with id %d%n", movie, id);
-			return movie;
-		});
-		
+
+		return movieMono.map(movie -> store(id, movie))
+						.delayUntil(movie -> durable());
+
+	}
+
+	@Override
+	public void close() {
+		if (journal != null) {
+			journal.close();
+		}
+	}
+
+	/**
+	 * Completes once the writes made so far are on disk; in memory-only mode
+	 * there is nothing to wait for.
+	 */
+	private Mono<Void> durable() {
+		if (journal == null) {
+			return Mono.empty();
+		}
+		return Mono.defer(() -> Mono.fromFuture(journal.commit()));
+	}
+
+	/**
+	 * Unconditionally stores the movie, one version above whatever it
+	 * replaces.
+	 */
+	private Movie store(int id, Movie movie) {
+		if (journal == null) {
+			return doStore(id, movie);
+		}
+		synchronized (writeStripe(id)) {
+			return doStore(id, movie);
+		}
+	}
+
+	private Movie doStore(int id, Movie movie) {
+		Movie previous;
+		Movie stored;
+		byte[] record;
+		do {
+			previous = movies.get(id);
+			stored = previous == null ? movie : movie.withVersion(previous.getVersion() + 1);
+			// Encoded up front so a movie too big to journal never reaches the table
+			record = journal != null ? journal.putRecord(id, stored) : null;
+		}
+		while (!movies.compareAndSet(id, previous, stored));
+		stored(id, previous, stored, record);
+		return stored;
+	}
+
+	/**
+	 * Returns the updated movie, or {@code null} if the id is unknown.
+	 */
+	private Movie replace(int id, long expectedVersion, Movie movie) {
+		Movie current = movies.get(id);
+		if (current == null) {
+			return null;
+		}
+		Movie updated = movie.withVersion(expectedVersion + 1);
+		byte[] record = journal != null ? journal.putRecord(id, updated) : null;
+		if (current.getVersion() != expectedVersion || !movies.compareAndSet(id, current, updated)) {
+			throw new OptimisticLockingFailureException(String.format(
+					"Movie %d was modified concurrently, expected version %d", id, expectedVersion));
+		}
+		stored(id, current, updated, record);
+		return updated;
+	}
+
+	// The table is updated before the journal so that a snapshot taken
+	// concurrently never misses a write whose log record it deletes
+	private void stored(int id, Movie previous, Movie movie, byte[] record) {
+		if (previous != null) {
+			unindex(id, previous);
+		}
+		index(id, movie);
+		if (journal != null) {
+			journal.append(id, record);
+		}
+		publish(previous == null ? MovieChange.Type.INSERTED : MovieChange.Type.UPDATED, id, movie);
+	}
+
+	private void evict(int id) {
+		if (journal == null) {
+			doEvict(id);
+			return;
+		}
+		synchronized (writeStripe(id)) {
+			doEvict(id);
+		}
+	}
+
+	private void doEvict(int id) {
+		Movie previous = movies.remove(id);
+		if (previous != null) {
+			unindex(id, previous);
+			publish(MovieChange.Type.DELETED, id, previous);
+		}
+		if (journal != null) {
+			journal.append(id, journal.removeRecord(id));
+		}
+	}
+
+	private Object writeStripe(int id) {
+		return writeStripes[id & (WRITE_STRIPES - 1)];
+	}
+
+	private void publish(MovieChange.Type type, int id, Movie movie) {
+		// Skip allocating the change when nobody is listening
+		if (changeProcessor.hasDownstreams()) {
+			changeSink.next(new MovieChange(type, id, movie));
+		}
+	}
+
+	private void index(int id, Movie movie) {
+		if (movie.getGenre() != null) {
+			genreIndex.computeIfAbsent(movie.getGenre(), genre -> ConcurrentHashMap.newKeySet())
+					  .add(id);
+		}
+	}
+
+	private void unindex(int id, Movie movie) {
+		String genre = movie.getGenre();
+		Set<Integer> ids = genre == null ? null : genreIndex.get(genre);
+		if (ids == null) {
+			return;
+		}
+		// No lock orders this against a concurrent write that stores the id
+		// under the same genre again, so after removing the entry check the
+		// table once more and put it back if that write got in between
+		while (!hasGenre(id, genre)) {
+			ids.remove(id);
+			if (!hasGenre(id, genre)) {
+				return;
+			}
+			ids.add(id);
+		}
+	}
+
+	private boolean hasGenre(int id, String genre) {
+		Movie current = movies.get(id);
+		return current != null && genre.equals(current.getGenre());
 	}
 
 }
@@ -21,7 +21,7 @@ public class MainApplication {
 		movieRepository.getMovie(4).subscribe(System.out::println);
 		
 		movieRepository.allMovies().subscribe(System.out::println);
-		movieRepository.deleteMovie(4);
+		movieRepository.deleteMovie(4).block();
 		Thread.sleep(3000);
 	}
 }
@@ -4,10 +4,17 @@ public class Movie {
 
 	private String title;
 	private String genre;
+	// Bumped by the repository on every update, see MovieRepository.updateMovie(int, long, Mono)
+	private long version;
 	
 	public Movie(String title, String genre) {
+		this(title, genre, 0);
+	}
+
+	public Movie(String title, String genre, long version) {
 		this.title = title;
 		this.genre = genre;
+		this.version = version;
 	}
 	
 	public String getGenre() {
@@ -18,9 +25,17 @@ public class Movie {
 		return title;
 	}
 
+	public long getVersion() {
+		return version;
+	}
+
+	Movie withVersion(long version) {
+		return version == this.version ? this : new Movie(title, genre, version);
+	}
+
 	@Override
 	public String toString() {
-		return "Movie [title=" + title + ", genre=" + genre;
+		return "Movie [title=" + title + ", genre=" + genre + ", version=" + version + "]";
 	}
 
 }
@@ -0,0 +1,37 @@
+package io.pivotal.reactive;
+
+public class MovieChange {
+
+	public enum Type {
+		INSERTED, UPDATED, DELETED
+	}
+
+	private final Type type;
+	private final int id;
+	// The movie after the change, or the removed movie for DELETED
+	private final Movie movie;
+
+	public MovieChange(Type type, int id, Movie movie) {
+		this.type = type;
+		this.id = id;
+		this.movie = movie;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public Movie getMovie() {
+		return movie;
+	}
+
+	@Override
+	public String toString() {
+		return "MovieChange [type=" + type + ", id=" + id + ", movie=" + movie + "]";
+	}
+
+}
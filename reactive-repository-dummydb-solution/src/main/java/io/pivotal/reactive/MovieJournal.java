@@ -0,0 +1,477 @@
+package io.pivotal.reactive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-ahead log plus compacted snapshots for {@link InMemoryMovieRepository}.
+ * <p>
+ * Every write is appended to a memory-mapped log segment ("movies-N.log")
+ * as a length, a CRC32 of the record and the record itself. The OS may write
+ * the pages of a mapped segment back in any order, so after a crash replay
+ * stops at the first record whose checksum does not match.
+ * A background thread forces the segment to disk every flush interval and
+ * completes the futures handed out by {@link #commit()}, so all writers that
+ * arrived during one interval share a single fsync (group commit).
+ * <p>
+ * Once a segment grows past half of its capacity the same thread rolls over
+ * to a new segment and writes a snapshot of the table ("movies.snapshot")
+ * that records which segment replay has to start from. Older segments are
+ * then deleted, so startup reads one snapshot plus a bounded log tail.
+ * Replaying a put or remove twice is harmless, which is what allows the
+ * snapshot to be taken while writers keep appending to the new segment.
+ * <p>
+ * Replay applies records in log order, so writes to one id must be appended
+ * in the order they were applied to the table; the caller serializes them.
+ */
+class MovieJournal implements Closeable {
+
+	static final int DEFAULT_SEGMENT_CAPACITY = 64 * 1024 * 1024;
+	static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 10;
+
+	private static final String SNAPSHOT_FILE = "movies.snapshot";
+	private static final String SEGMENT_PREFIX = "movies-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final int SNAPSHOT_MAGIC = 0x4D4F5653;
+	private static final int END_OF_SNAPSHOT = -1;
+
+	private static final byte PUT = 1;
+	private static final byte REMOVE = 2;
+	// Length and checksum in front of every record
+	private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+	private static final Logger logger = LoggerFactory.getLogger(MovieJournal.class);
+
+	private final Path directory;
+	private final int segmentCapacity;
+	private final ScheduledExecutorService flusher;
+	private final Object lock = new Object();
+
+	private MovieTable table;
+	private long generation;
+	private FileChannel channel;
+	private MappedByteBuffer segment;
+	private int highestId;
+	private boolean dirty;
+	private boolean closed;
+	private CompletableFuture<Void> pendingCommit = new CompletableFuture<>();
+	private CompletableFuture<Void> lastCommit = CompletableFuture.completedFuture(null);
+
+	MovieJournal(Path directory) {
+		this(directory, DEFAULT_SEGMENT_CAPACITY, DEFAULT_FLUSH_INTERVAL_MILLIS);
+	}
+
+	MovieJournal(Path directory, int segmentCapacity, long flushIntervalMillis) {
+		this.directory = directory;
+		this.segmentCapacity = segmentCapacity;
+		this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "movie-journal-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Loads the latest snapshot, replays the log segments written after it and
+	 * opens the last segment for appending.
+	 */
+	MovieTable recover() throws IOException {
+		Files.createDirectories(directory);
+		MovieTable table = new MovieTable();
+		long firstGeneration = 0;
+
+		Path snapshot = directory.resolve(SNAPSHOT_FILE);
+		if (Files.exists(snapshot)) {
+			try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshot))) {
+				if (in.readInt() != SNAPSHOT_MAGIC) {
+					throw new IOException("Not a movie snapshot: " + snapshot);
+				}
+				firstGeneration = in.readLong();
+				highestId = in.readInt();
+				for (int id = in.readInt(); id != END_OF_SNAPSHOT; id = in.readInt()) {
+					table.put(id, readMovie(in));
+				}
+			}
+		}
+
+		List<Long> generations = segmentGenerations();
+		int position = 0;
+		long current = firstGeneration;
+		for (long segmentGeneration : generations) {
+			if (segmentGeneration < firstGeneration) {
+				Files.delete(segmentPath(segmentGeneration));
+				continue;
+			}
+			position = replay(segmentPath(segmentGeneration), table);
+			current = segmentGeneration;
+		}
+
+		synchronized (lock) {
+			this.table = table;
+			openSegment(current, position);
+		}
+		return table;
+	}
+
+	int highestId() {
+		synchronized (lock) {
+			return highestId;
+		}
+	}
+
+	void logPut(int id, Movie movie) {
+		append(id, putRecord(id, movie));
+	}
+
+	void logRemove(int id) {
+		append(id, removeRecord(id));
+	}
+
+	/**
+	 * Encodes a put, rejecting a movie that could never fit in a segment, so
+	 * that callers can check before they change the table.
+	 */
+	byte[] putRecord(int id, Movie movie) {
+		byte[] record = encode(PUT, id, movie);
+		if (HEADER_BYTES + record.length > segmentCapacity) {
+			throw new IllegalArgumentException(String.format(
+					"Movie %d needs a %d byte journal record, segments hold at most %d bytes", id,
+					HEADER_BYTES + record.length, segmentCapacity));
+		}
+		return record;
+	}
+
+	byte[] removeRecord(int id) {
+		return encode(REMOVE, id, null);
+	}
+
+	/**
+	 * Appends a record made by {@link #putRecord(int, Movie)} or
+	 * {@link #removeRecord(int)}.
+	 *
+	 * @throws IllegalStateException if the journal has been closed
+	 */
+	void append(int id, byte[] record) {
+		int checksum = checksum(record);
+		synchronized (lock) {
+			if (closed) {
+				throw new IllegalStateException("Movie journal is closed");
+			}
+			if (segment.position() + HEADER_BYTES + record.length > segment.capacity()) {
+				rollOver();
+			}
+			int start = segment.position();
+			segment.position(start + HEADER_BYTES);
+			segment.put(record);
+			segment.putInt(start + Integer.BYTES, checksum);
+			segment.putInt(start, record.length);
+			highestId = Math.max(highestId, id);
+			dirty = true;
+		}
+	}
+
+	/**
+	 * Returns a future that completes once everything appended so far has
+	 * been forced to disk by the next group commit, or that fails if the
+	 * journal has been closed.
+	 */
+	CompletableFuture<Void> commit() {
+		synchronized (lock) {
+			if (closed) {
+				CompletableFuture<Void> failed = new CompletableFuture<>();
+				failed.completeExceptionally(new IllegalStateException("Movie journal is closed"));
+				return failed;
+			}
+			// When nothing was appended since the last swap, the caller's writes
+			// belong to the commit that is being forced right now
+			return dirty ? pendingCommit : lastCommit;
+		}
+	}
+
+	/**
+	 * Rejects further appends, forces what was appended so far and completes
+	 * the commits waiting for it.
+	 */
+	@Override
+	public void close() {
+		synchronized (lock) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		// The final flush runs on the flusher too, after any compaction it is
+		// in the middle of, so two compactions never write the snapshot at once
+		flusher.execute(this::flush);
+		flusher.shutdown();
+		boolean interrupted = false;
+		while (!flusher.isTerminated()) {
+			try {
+				flusher.awaitTermination(1, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread()
+				  .interrupt();
+		}
+		synchronized (lock) {
+			closeSegment();
+			channel = null;
+			segment = null;
+			// Only left incomplete if the final flush did not get to it
+			pendingCommit.completeExceptionally(new IllegalStateException("Movie journal is closed"));
+		}
+	}
+
+	private void flush() {
+		MappedByteBuffer toForce;
+		CompletableFuture<Void> commit;
+		boolean compact;
+		synchronized (lock) {
+			if (!dirty || segment == null) {
+				return;
+			}
+			toForce = segment;
+			commit = pendingCommit;
+			lastCommit = commit;
+			pendingCommit = new CompletableFuture<>();
+			dirty = false;
+			compact = segment.position() > segmentCapacity / 2;
+		}
+		try {
+			toForce.force();
+			commit.complete(null);
+		}
+		catch (RuntimeException e) {
+			commit.completeExceptionally(e);
+		}
+		if (compact) {
+			try {
+				compact();
+			}
+			catch (IOException | RuntimeException e) {
+				logger.warn("Movie journal compaction failed, the log will be replayed from the last snapshot", e);
+			}
+		}
+	}
+
+	/**
+	 * Starts a new segment and writes a snapshot that replaces every segment
+	 * before it.
+	 */
+	private void compact() throws IOException {
+		long snapshotGeneration;
+		int snapshotHighestId;
+		synchronized (lock) {
+			rollOver();
+			snapshotGeneration = generation;
+			snapshotHighestId = highestId;
+		}
+
+		Path snapshot = directory.resolve(SNAPSHOT_FILE);
+		Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+		try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeLong(snapshotGeneration);
+			out.writeInt(snapshotHighestId);
+			try {
+				table.forEach((id, movie) -> {
+					try {
+						out.writeInt(id);
+						writeMovie(out, movie);
+					}
+					catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			}
+			catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			out.writeInt(END_OF_SNAPSHOT);
+			out.flush();
+			file.getFD()
+				.sync();
+		}
+		Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+		for (long segmentGeneration : segmentGenerations()) {
+			if (segmentGeneration < snapshotGeneration) {
+				Files.deleteIfExists(segmentPath(segmentGeneration));
+			}
+		}
+	}
+
+	private void rollOver() {
+		segment.force();
+		closeSegment();
+		try {
+			openSegment(generation + 1, 0);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void openSegment(long generation, int position) throws IOException {
+		this.generation = generation;
+		this.channel = FileChannel.open(segmentPath(generation), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		this.segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentCapacity);
+		this.segment.position(position);
+	}
+
+	private void closeSegment() {
+		if (channel == null) {
+			return;
+		}
+		try {
+			channel.close();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Applies the records of one segment and returns the position just after
+	 * the last intact record.
+	 */
+	private int replay(Path path, MovieTable table) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			while (buffer.remaining() >= HEADER_BYTES) {
+				int start = buffer.position();
+				int length = buffer.getInt();
+				int checksum = buffer.getInt();
+				if (length <= 0 || length > buffer.remaining()) {
+					return start;
+				}
+				byte[] record = new byte[length];
+				buffer.get(record);
+				// Unwritten space or a torn tail, the log ends here
+				if (checksum(record) != checksum) {
+					return start;
+				}
+				DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+				byte operation = in.readByte();
+				int id = in.readInt();
+				if (operation == PUT) {
+					table.put(id, readMovie(in));
+				}
+				else {
+					table.remove(id);
+				}
+				highestId = Math.max(highestId, id);
+			}
+			return buffer.position();
+		}
+	}
+
+	private List<Long> segmentGenerations() throws IOException {
+		List<Long> generations = new ArrayList<>();
+		try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory,
+				SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			for (Path segment : segments) {
+				String name = segment.getFileName()
+									 .toString();
+				generations.add(Long.parseLong(
+						name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+			}
+		}
+		Collections.sort(generations);
+		return generations;
+	}
+
+	private Path segmentPath(long generation) {
+		return directory.resolve(SEGMENT_PREFIX + generation + SEGMENT_SUFFIX);
+	}
+
+	private static int checksum(byte[] record) {
+		CRC32 crc = new CRC32();
+		crc.update(record, 0, record.length);
+		return (int) crc.getValue();
+	}
+
+	private static byte[] encode(byte operation, int id, Movie movie) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(operation);
+			out.writeInt(id);
+			if (movie != null) {
+				writeMovie(out, movie);
+			}
+			return bytes.toByteArray();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void writeMovie(DataOutput out, Movie movie) throws IOException {
+		writeString(out, movie.getTitle());
+		writeString(out, movie.getGenre());
+		out.writeLong(movie.getVersion());
+	}
+
+	private static Movie readMovie(DataInput in) throws IOException {
+		return new Movie(readString(in), readString(in), in.readLong());
+	}
+
+	private static void writeString(DataOutput out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
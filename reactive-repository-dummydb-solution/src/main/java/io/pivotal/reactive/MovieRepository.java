@@ -15,6 +15,24 @@ public interface MovieRepository {
 	//   Mono<Movie> as the 2nd argument (the first argument is
 	//   movie id) and should return updated Movie as Mono<Movie>
     Mono<Movie> updateMovie(int id, Mono<Movie> movie);
+
+	// Bulk variants that commit the incoming movies/ids in batches
+	// rather than one pipeline per element
+	Flux<Integer> saveAll(Flux<Movie> movies);
+	Mono<Void> deleteAll(Flux<Integer> ids);
+
+	Flux<Movie> findByGenre(String genre);
+
+	// Optimistic update: only applied if the stored movie still has the
+	// expected version, otherwise fails with OptimisticLockingFailureException
+	Mono<Movie> updateMovie(int id, long expectedVersion, Mono<Movie> movie);
+
+	// Movies in ascending id order, produced one at a time as requested
+	Flux<Movie> moviesPage(int afterId, int limit);
+	Flux<Movie> moviesInRange(int fromId, int toId);
+
+	// Hot stream of the inserts, updates and deletes made after subscribing
+	Flux<MovieChange> changes();
 }
 
 // TODO-reactive-repository-dummydb-11 (Optional): Do the following
@@ -0,0 +1,169 @@
+package io.pivotal.reactive;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Movie store indexed directly by the primitive int id.
+ * <p>
+ * Slots live in fixed-size chunks that are allocated as the id sequence
+ * grows, so a key costs one array slot instead of a boxed {@link Integer}
+ * plus a hash map entry. Reads and writes of a slot are lock-free; only
+ * adding a chunk takes a lock. Ids are never reused, so deleted slots are
+ * simply cleared rather than kept on a free list.
+ */
+class MovieTable {
+
+	private static final int CHUNK_SHIFT = 12;
+	static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private volatile AtomicReferenceArray<Movie>[] chunks = newChunks(1);
+	private final AtomicInteger size = new AtomicInteger();
+
+	Movie get(int id) {
+		AtomicReferenceArray<Movie>[] chunks = this.chunks;
+		int chunk = id >>> CHUNK_SHIFT;
+		if (id < 0 || chunk >= chunks.length || chunks[chunk] == null) {
+			return null;
+		}
+		return chunks[chunk].get(id & CHUNK_MASK);
+	}
+
+	/**
+	 * Stores the movie under the given id and returns the one it replaced.
+	 */
+	Movie put(int id, Movie movie) {
+		Movie previous = chunkFor(id).getAndSet(id & CHUNK_MASK, movie);
+		if (previous == null) {
+			size.incrementAndGet();
+		}
+		return previous;
+	}
+
+	/**
+	 * Stores the update only if the slot still holds the expected movie
+	 * (compared by identity); {@code null} expects an empty slot.
+	 */
+	boolean compareAndSet(int id, Movie expected, Movie update) {
+		if (!chunkFor(id).compareAndSet(id & CHUNK_MASK, expected, update)) {
+			return false;
+		}
+		if (expected == null) {
+			size.incrementAndGet();
+		}
+		return true;
+	}
+
+	Movie remove(int id) {
+		AtomicReferenceArray<Movie>[] chunks = this.chunks;
+		int chunk = id >>> CHUNK_SHIFT;
+		if (id < 0 || chunk >= chunks.length || chunks[chunk] == null) {
+			return null;
+		}
+		Movie previous = chunks[chunk].getAndSet(id & CHUNK_MASK, null);
+		if (previous != null) {
+			size.decrementAndGet();
+		}
+		return previous;
+	}
+
+	int size() {
+		return size.get();
+	}
+
+	int allocatedChunks() {
+		int allocated = 0;
+		for (AtomicReferenceArray<Movie> chunk : this.chunks) {
+			if (chunk != null) {
+				allocated++;
+			}
+		}
+		return allocated;
+	}
+
+	/**
+	 * Returns the smallest id in {@code [fromId, toId]} that holds a movie,
+	 * or -1 if there is none. Chunks that were never allocated are skipped
+	 * as a whole.
+	 */
+	int nextId(int fromId, int toId) {
+		AtomicReferenceArray<Movie>[] chunks = this.chunks;
+		long id = Math.max(fromId, 0);
+		while (id <= toId && (id >>> CHUNK_SHIFT) < chunks.length) {
+			AtomicReferenceArray<Movie> chunk = chunks[(int) (id >>> CHUNK_SHIFT)];
+			if (chunk == null) {
+				id = ((id >>> CHUNK_SHIFT) + 1) << CHUNK_SHIFT;
+			}
+			else if (chunk.get((int) (id & CHUNK_MASK)) != null) {
+				return (int) id;
+			}
+			else {
+				id++;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Copies the current movies in id order.
+	 */
+	List<Movie> snapshot() {
+		List<Movie> movies = new ArrayList<>(size());
+		forEach((id, movie) -> movies.add(movie));
+		return movies;
+	}
+
+	/**
+	 * Visits the current movies in id order.
+	 */
+	void forEach(Visitor visitor) {
+		AtomicReferenceArray<Movie>[] chunks = this.chunks;
+		for (int c = 0; c < chunks.length; c++) {
+			if (chunks[c] == null) {
+				continue;
+			}
+			for (int i = 0; i < CHUNK_SIZE; i++) {
+				Movie movie = chunks[c].get(i);
+				if (movie != null) {
+					visitor.visit((c << CHUNK_SHIFT) | i, movie);
+				}
+			}
+		}
+	}
+
+	private AtomicReferenceArray<Movie> chunkFor(int id) {
+		if (id < 0) {
+			throw new IllegalArgumentException("Movie id must not be negative: " + id);
+		}
+		int chunk = id >>> CHUNK_SHIFT;
+		AtomicReferenceArray<Movie>[] chunks = this.chunks;
+		if (chunk < chunks.length && chunks[chunk] != null) {
+			return chunks[chunk];
+		}
+		synchronized (this) {
+			chunks = this.chunks;
+			if (chunk >= chunks.length) {
+				chunks = Arrays.copyOf(chunks, Math.max(chunk + 1, chunks.length * 2));
+			}
+			if (chunks[chunk] == null) {
+				chunks[chunk] = new AtomicReferenceArray<>(CHUNK_SIZE);
+			}
+			this.chunks = chunks;
+			return chunks[chunk];
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static AtomicReferenceArray<Movie>[] newChunks(int length) {
+		return new AtomicReferenceArray[length];
+	}
+
+	interface Visitor {
+		void visit(int id, Movie movie);
+	}
+
+}
@@ -0,0 +1,155 @@
+package io.pivotal.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+@RunWith(JUnitPlatform.class)
+class CachingMovieRepositoryTests {
+
+	private final AtomicInteger loads = new AtomicInteger();
+	private MovieRepository slowRepository;
+	private CachingMovieRepository repository;
+
+	@BeforeEach
+	void setUp() {
+		// A backing store that is slow enough for misses to overlap
+		slowRepository = new InMemoryMovieRepository() {
+			@Override
+			public Mono<Movie> getMovie(int id) {
+				return Mono.defer(() -> {
+					loads.incrementAndGet();
+					return super.getMovie(id)
+								.delayElement(Duration.ofMillis(50));
+				});
+			}
+		};
+		repository = new CachingMovieRepository(slowRepository, 100, Duration.ofMinutes(1));
+	}
+
+	@Test
+	void concurrentMissesShareOneLoad() {
+		List<Movie> movies = Flux.range(0, 10)
+								 .flatMap(i -> repository.getMovie(2)
+														 .subscribeOn(Schedulers.parallel()))
+								 .collectList()
+								 .block();
+
+		assertThat(movies).hasSize(10)
+						  .extracting(Movie::getTitle)
+						  .containsOnly("jaws");
+		assertThat(loads).hasValue(1);
+		assertThat(repository.missCount()).isEqualTo(1);
+		assertThat(repository.hitCount()).isEqualTo(9);
+		assertThat(repository.averageMissLatency()).isGreaterThanOrEqualTo(Duration.ofMillis(50));
+	}
+
+	@Test
+	void writesInvalidateCachedMovies() {
+		repository.getMovie(1)
+				  .block();
+		repository.updateMovie(1, Mono.just(new Movie("avengers 2", "action")))
+				  .block();
+
+		assertThat(repository.getMovie(1)
+							 .block()
+							 .getTitle()).isEqualTo("avengers 2");
+
+		repository.deleteMovie(1)
+				  .block();
+
+		assertThat(repository.getMovie(1)
+							 .block()).isNull();
+		assertThat(loads).hasValue(3);
+	}
+
+	@Test
+	void missingMoviesAreNotCached() {
+		assertThat(repository.getMovie(4)
+							 .block()).isNull();
+
+		repository.saveMovie(Mono.just(new Movie("thor", "action")))
+				  .block();
+
+		assertThat(repository.getMovie(4)
+							 .block()
+							 .getTitle()).isEqualTo("thor");
+	}
+
+	@Test
+	void deleteAllLeavesNoDeletedMovieCached() {
+		// Reads movie 1 after it was invalidated but before its batch is deleted
+		repository.deleteAll(Flux	.just(1, 2)
+									.delayUntil(id -> id == 2 ? repository.getMovie(1) : Mono.empty()))
+				  .block();
+
+		assertThat(repository.getMovie(1)
+							 .block()).isNull();
+		assertThat(repository.getMovie(2)
+							 .block()).isNull();
+	}
+
+	@Test
+	void loadStillReadingWhenAWriteCompletesIsNotKept() {
+		// Reads the old movie now and answers 50ms later
+		Mono<Movie> stale = repository	.getMovie(1)
+										.toProcessor();
+		repository.updateMovie(1, Mono.just(new Movie("avengers 2", "action")))
+				  .block();
+
+		assertThat(stale.block()
+						.getTitle()).isEqualTo("avengers");
+		assertThat(repository.getMovie(1)
+							 .block()
+							 .getTitle()).isEqualTo("avengers 2");
+	}
+
+	@Test
+	void timeToLiveIsChosenPerId() {
+		repository = new CachingMovieRepository(slowRepository, 100,
+				id -> id == 1 ? Duration.ZERO : Duration.ofMinutes(1));
+
+		for (int i = 0; i < 2; i++) {
+			repository.getMovie(1)
+					  .block();
+			repository.getMovie(2)
+					  .block();
+		}
+
+		assertThat(loads).hasValue(3);
+	}
+
+	@Test
+	void statisticsArePublishedToMicrometer() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		repository.bindTo(registry);
+
+		repository.getMovie(2)
+				  .block();
+		repository.getMovie(2)
+				  .block();
+
+		assertThat(registry	.get("cache.gets")
+							.tag("cache", CachingMovieRepository.CACHE_NAME)
+							.tag("result", "hit")
+							.functionCounter()
+							.count()).isEqualTo(1);
+		assertThat(registry	.get("movies.cache.load")
+							.functionTimer()
+							.count()).isEqualTo(1);
+	}
+
+}
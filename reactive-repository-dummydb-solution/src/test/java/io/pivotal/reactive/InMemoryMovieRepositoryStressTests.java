@@ -0,0 +1,154 @@
+package io.pivotal.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+import org.reactivestreams.Subscription;
+
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+@RunWith(JUnitPlatform.class)
+class InMemoryMovieRepositoryStressTests {
+
+	private static final int SEEDED_MOVIES = 3;
+
+	/**
+	 * Many subscribers saving on the parallel scheduler at once must neither
+	 * lose a write nor hand out the same id twice.
+	 */
+	@Test
+	void concurrentSavesAreNotLost() {
+		InMemoryMovieRepository repository = new InMemoryMovieRepository();
+		int saves = 20_000;
+
+		Flux.range(0, saves)
+			.parallel()
+			.runOn(Schedulers.parallel())
+			.flatMap(i -> repository.saveMovie(Mono.just(new Movie("movie" + i, "action"))))
+			.sequential()
+			.blockLast();
+
+		List<Movie> movies = repository.allMovies()
+									   .collectList()
+									   .block();
+		assertThat(movies).hasSize(SEEDED_MOVIES + saves);
+		assertThat(repository.getMovie(SEEDED_MOVIES + saves)
+							 .block()).isNotNull();
+	}
+
+	@Test
+	void concurrentSavesAndDeletesKeepIdsUnique() {
+		InMemoryMovieRepository repository = new InMemoryMovieRepository();
+		int saves = 20_000;
+
+		Flux<Void> writes = Flux.range(0, saves)
+								.flatMap(i -> repository.saveMovie(Mono.just(new Movie("movie" + i, "drama")))
+														.subscribeOn(Schedulers.parallel()));
+		Flux<Void> deletes = Flux.range(1, SEEDED_MOVIES)
+								 .flatMap(id -> repository.deleteMovie(id)
+														  .subscribeOn(Schedulers.parallel()));
+		Flux.merge(writes, deletes)
+			.blockLast();
+
+		assertThat(repository.allMovies()
+							 .count()
+							 .block()).isEqualTo(saves);
+		// A reused id would have overwritten one of the saved movies
+		assertThat(repository.getMovie(SEEDED_MOVIES + saves)
+							 .block()).isNotNull();
+		assertThat(repository.getMovie(SEEDED_MOVIES + saves + 1)
+							 .block()).isNull();
+	}
+
+	/**
+	 * Concurrent genre changes to the same few ids must leave every movie
+	 * findable under the genre it ended up with.
+	 */
+	@Test
+	void concurrentGenreChangesKeepTheIndexComplete() {
+		InMemoryMovieRepository repository = new InMemoryMovieRepository();
+		String[] genres = { "action", "drama", "comic" };
+		int updates = 20_000;
+
+		Flux.range(0, updates)
+			.parallel()
+			.runOn(Schedulers.parallel())
+			.flatMap(i -> {
+				int id = i % SEEDED_MOVIES + 1;
+				String genre = genres[i / SEEDED_MOVIES % genres.length];
+				return repository.updateMovie(id, Mono.just(new Movie("movie" + id, genre)));
+			})
+			.sequential()
+			.blockLast();
+
+		List<Movie> movies = repository.allMovies()
+									   .collectList()
+									   .block();
+		for (String genre : genres) {
+			List<String> expected = movies.stream()
+										  .filter(movie -> genre.equals(movie.getGenre()))
+										  .map(Movie::getTitle)
+										  .collect(Collectors.toList());
+			assertThat(repository.findByGenre(genre)
+								 .map(Movie::getTitle)
+								 .collectList()
+								 .block()).as(genre)
+										  .containsExactlyInAnyOrderElementsOf(expected);
+		}
+	}
+
+	/**
+	 * A subscriber that stops requesting must not hold up writers, while a
+	 * subscriber that keeps up still sees every change. What the subscribers
+	 * cost a write is measured by MovieChangeFeedBenchmark.
+	 */
+	@Test
+	void slowChangeSubscriberDoesNotStallWriters() {
+		InMemoryMovieRepository repository = new InMemoryMovieRepository();
+		int saves = 5_000;
+
+		List<MovieChange> slow = new ArrayList<>();
+		repository.changes()
+				  .subscribe(new BaseSubscriber<MovieChange>() {
+					  @Override
+					  protected void hookOnSubscribe(Subscription subscription) {
+						  request(1);
+					  }
+
+					  @Override
+					  protected void hookOnNext(MovieChange change) {
+						  slow.add(change);
+					  }
+				  });
+		List<MovieChange> fast = new CopyOnWriteArrayList<>();
+		repository.changes()
+				  .subscribe(fast::add);
+
+		save(repository, saves);
+
+		assertThat(slow).hasSize(1);
+		assertThat(fast).hasSize(saves);
+		assertThat(fast.get(0)
+					   .getType()).isEqualTo(MovieChange.Type.INSERTED);
+	}
+
+	private void save(InMemoryMovieRepository repository, int saves) {
+		Flux.range(0, saves)
+			.parallel()
+			.runOn(Schedulers.parallel())
+			.flatMap(i -> repository.saveMovie(Mono.just(new Movie("movie" + i, "comic"))))
+			.sequential()
+			.blockLast();
+	}
+
+}
@@ -0,0 +1,165 @@
+package io.pivotal.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+import org.reactivestreams.Subscription;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Each test works on its own repository, starting from the three sample
+ * movies.
+ */
+@RunWith(JUnitPlatform.class)
+class InMemoryMovieRepositoryTests {
+
+	@Test
+	void saveAllAndDeleteAll() {
+		InMemoryMovieRepository repository = new InMemoryMovieRepository();
+		repository.setBatchSize(2);
+
+		List<Integer> ids = repository.saveAll(Flux.just(new Movie("thor", "action"), new Movie("up", "comic"),
+		                                                 new Movie("heat", "drama")))
+		                              .collectList()
+		                              .block();
+		assertThat(ids).containsExactly(4, 5, 6);
+		assertThat(repository.getMovie(6)
+		                     .block()
+		                     .getTitle()).isEqualTo("heat");
+
+		repository.deleteAll(Flux.just(1, 4, 6))
+		          .block();
+
+		List<Movie> movies = repository.allMovies()
+		                               .collectList()
+		                               .block();
+		assertThat(movies).extracting(Movie::getTitle)
+		                  .containsExactly("jaws", "iron man", "up");
+	}
+
+	@Test
+	void findByGenreFollowsUpdatesAndDeletes() {
+		InMemoryMovieRepository repository = new InMemoryMovieRepository();
+
+		assertThat(repository.findByGenre("action")
+		                     .map(Movie::getTitle)
+		                     .collectList()
+		                     .block()).containsExactlyInAnyOrder("avengers", "iron man");
+
+		repository.updateMovie(1, Mono.just(new Movie("avengers", "comic")))
+		          .block();
+		repository.deleteMovie(3)
+		          .block();
+		repository.saveMovie(Mono.just(new Movie("thor", "action")))
+		          .block();
+
+		assertThat(repository.findByGenre("action")
+		                     .map(Movie::getTitle)
+		                     .collectList()
+		                     .block()).containsExactly("thor");
+		assertThat(repository.findByGenre("comic")
+		                     .map(Movie::getTitle)
+		                     .collectList()
+		                     .block()).containsExactly("avengers");
+		assertThat(repository.findByGenre("western")
+		                     .collectList()
+		                     .block()).isEmpty();
+	}
+
+	@Test
+	void updateMovieWithStaleVersionFails() {
+		InMemoryMovieRepository repository = new InMemoryMovieRepository();
+		long version = repository.getMovie(2)
+		                         .block()
+		                         .getVersion();
+
+		Movie updated = repository.updateMovie(2, version, Mono.just(new Movie("jaws 2", "other")))
+		                          .block();
+		assertThat(updated.getVersion()).isEqualTo(version + 1);
+
+		assertThatThrownBy(() -> repository.updateMovie(2, version, Mono.just(new Movie("jaws 3", "other")))
+		                                   .block()).isInstanceOf(OptimisticLockingFailureException.class);
+		assertThat(repository.getMovie(2)
+		                     .block()
+		                     .getTitle()).isEqualTo("jaws 2");
+	}
+
+	@Test
+	void concurrentUpdatesWithSameVersionHaveOneWinner() {
+		InMemoryMovieRepository repository = new InMemoryMovieRepository();
+		int updaters = 16;
+
+		Long succeeded = Flux.range(0, updaters)
+		                     .flatMap(i -> repository.updateMovie(3, 0, Mono.just(new Movie("iron man " + i, "action")))
+		                                             .subscribeOn(Schedulers.parallel())
+		                                             .onErrorResume(OptimisticLockingFailureException.class,
+		                                                     e -> Mono.empty()))
+		                     .count()
+		                     .block();
+
+		assertThat(succeeded).isEqualTo(1);
+		assertThat(repository.getMovie(3)
+		                     .block()
+		                     .getVersion()).isEqualTo(1);
+	}
+
+	@Test
+	void moviesPageAndRange() {
+		InMemoryMovieRepository repository = new InMemoryMovieRepository();
+		repository.saveAll(Flux.range(4, 7)
+		                       .map(i -> new Movie("movie" + i, "drama")))
+		          .blockLast();
+		repository.deleteMovie(5)
+		          .block();
+
+		assertThat(repository.moviesPage(0, 3)
+		                     .map(Movie::getTitle)
+		                     .collectList()
+		                     .block()).containsExactly("avengers", "jaws", "iron man");
+		assertThat(repository.moviesPage(3, 3)
+		                     .map(Movie::getTitle)
+		                     .collectList()
+		                     .block()).containsExactly("movie4", "movie6", "movie7");
+		assertThat(repository.moviesPage(10, 3)
+		                     .collectList()
+		                     .block()).isEmpty();
+		assertThat(repository.moviesInRange(4, 6)
+		                     .map(Movie::getTitle)
+		                     .collectList()
+		                     .block()).containsExactly("movie4", "movie6");
+	}
+
+	@Test
+	void moviesInRangeHonorsDemand() {
+		InMemoryMovieRepository repository = new InMemoryMovieRepository();
+		List<Movie> received = new ArrayList<>();
+
+		repository.moviesInRange(1, Integer.MAX_VALUE)
+		          .subscribe(new BaseSubscriber<Movie>() {
+		              @Override
+		              protected void hookOnSubscribe(Subscription subscription) {
+		                  request(1);
+		              }
+
+		              @Override
+		              protected void hookOnNext(Movie movie) {
+		                  received.add(movie);
+		              }
+		          });
+
+		assertThat(received).extracting(Movie::getTitle)
+		                    .containsExactly("avengers");
+	}
+
+}
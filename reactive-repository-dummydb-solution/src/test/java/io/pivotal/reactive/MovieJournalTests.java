@@ -0,0 +1,202 @@
+package io.pivotal.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+@RunWith(JUnitPlatform.class)
+class MovieJournalTests {
+
+	@Test
+	void repositoryRecoversWritesAfterRestart() throws IOException {
+		Path directory = Files.createTempDirectory("movies");
+
+		try (InMemoryMovieRepository repository = new InMemoryMovieRepository(directory)) {
+			repository.saveMovie(Mono.just(new Movie("thor", "action")))
+					  .block();
+			repository.updateMovie(2, Mono.just(new Movie("jaws 2", "other")))
+					  .block();
+			repository.deleteMovie(1)
+					  .block();
+		}
+
+		try (InMemoryMovieRepository repository = new InMemoryMovieRepository(directory)) {
+			List<Movie> movies = repository.allMovies()
+										   .collectList()
+										   .block();
+			assertThat(movies).extracting(Movie::getTitle)
+							  .containsExactly("jaws 2", "iron man", "thor");
+			assertThat(repository.findByGenre("action")
+								 .map(Movie::getTitle)
+								 .collectList()
+								 .block()).containsExactlyInAnyOrder("iron man", "thor");
+
+			// Ids keep counting from where the previous instance stopped
+			assertThat(repository.saveAll(Flux.just(new Movie("heat", "drama")))
+								 .blockLast()).isEqualTo(5);
+		}
+	}
+
+	/**
+	 * A tiny segment forces several roll-overs and snapshots, after which
+	 * only the segments written since the last snapshot remain on disk.
+	 */
+	@Test
+	void compactionReplacesOldSegmentsWithSnapshot() throws Exception {
+		Path directory = Files.createTempDirectory("movies");
+		int movies = 2000;
+
+		try (MovieJournal journal = new MovieJournal(directory, 16 * 1024, 1)) {
+			MovieTable table = journal.recover();
+			for (int id = 1; id <= movies; id++) {
+				Movie movie = new Movie("movie" + id, id % 2 == 0 ? "action" : "drama");
+				table.put(id, movie);
+				journal.logPut(id, movie);
+				journal.commit()
+					   .get();
+			}
+			for (int id = 1; id <= movies; id += 2) {
+				table.remove(id);
+				journal.logRemove(id);
+			}
+		}
+
+		assertThat(directory.resolve("movies.snapshot")).exists();
+		assertThat(Files.list(directory)
+						.filter(path -> path.toString()
+											.endsWith(".log"))
+						.count()).isLessThan(3);
+
+		try (MovieJournal journal = new MovieJournal(directory)) {
+			MovieTable table = journal.recover();
+			assertThat(table.size()).isEqualTo(movies / 2);
+			assertThat(table.get(movies)
+							.getTitle()).isEqualTo("movie" + movies);
+			assertThat(table.get(1)).isNull();
+			assertThat(journal.highestId()).isEqualTo(movies);
+		}
+	}
+
+	/**
+	 * Writers racing on the same ids must leave the log in the order the
+	 * table applied their writes, or a restart brings back a stale movie.
+	 */
+	@Test
+	void concurrentWritesToOneIdRecoverToTheirLastState() throws IOException {
+		Path directory = Files.createTempDirectory("movies");
+		List<Movie> before;
+
+		try (InMemoryMovieRepository repository = new InMemoryMovieRepository(directory)) {
+			Flux.range(0, 20_000)
+				.parallel()
+				.runOn(Schedulers.parallel())
+				.flatMap(i -> i % 10 == 0 ? repository.deleteMovie(1 + i % 3)
+						: repository	.updateMovie(1 + i % 3, Mono.just(new Movie("movie" + i, "action")))
+										.then())
+				.sequential()
+				.blockLast();
+			before = repository	.allMovies()
+								.collectList()
+								.block();
+		}
+
+		try (InMemoryMovieRepository repository = new InMemoryMovieRepository(directory)) {
+			assertThat(repository	.allMovies()
+									.collectList()
+									.block()).usingFieldByFieldElementComparator()
+											 .containsExactlyElementsOf(before);
+		}
+	}
+
+	@Test
+	void movieTooBigForSegmentIsRejectedBeforeTheTableChanges() throws IOException {
+		Path directory = Files.createTempDirectory("movies");
+		char[] title = new char[16 * 1024];
+		Arrays.fill(title, 'x');
+
+		try (InMemoryMovieRepository repository = new InMemoryMovieRepository(directory,
+				new MovieJournal(directory, 16 * 1024, 1))) {
+			assertThatThrownBy(() -> repository	.updateMovie(2, Mono.just(new Movie(new String(title), "other")))
+												.block()).isInstanceOf(IllegalArgumentException.class)
+														 .hasMessageContaining("journal record");
+			assertThat(repository	.getMovie(2)
+									.map(Movie::getTitle)
+									.block()).isEqualTo("jaws");
+		}
+	}
+
+	/**
+	 * A record whose bytes did not all reach the disk ends the log: replay
+	 * keeps the records before it and later appends overwrite it.
+	 */
+	@Test
+	void replayStopsAtACorruptRecord() throws Exception {
+		Path directory = Files.createTempDirectory("movies");
+
+		try (MovieJournal journal = new MovieJournal(directory, 16 * 1024, 1)) {
+			journal.recover();
+			for (int id = 1; id <= 3; id++) {
+				journal.logPut(id, new Movie("movie" + id, "action"));
+			}
+			journal	.commit()
+					.get();
+		}
+
+		try (RandomAccessFile segment = new RandomAccessFile(directory	.resolve("movies-0.log")
+																		.toFile(), "rw")) {
+			// Skip the length and checksum headers of the first two records
+			long third = 0;
+			for (int record = 0; record < 2; record++) {
+				segment.seek(third);
+				third += 2 * Integer.BYTES + segment.readInt();
+			}
+			long payload = third + 2 * Integer.BYTES;
+			segment.seek(payload);
+			byte operation = segment.readByte();
+			segment.seek(payload);
+			segment.writeByte(operation ^ 0xFF);
+		}
+
+		try (MovieJournal journal = new MovieJournal(directory, 16 * 1024, 1)) {
+			MovieTable table = journal.recover();
+			assertThat(table.size()).isEqualTo(2);
+			assertThat(table.get(3)).isNull();
+			assertThat(journal.highestId()).isEqualTo(2);
+			journal.logPut(4, new Movie("movie4", "drama"));
+		}
+
+		try (MovieJournal journal = new MovieJournal(directory, 16 * 1024, 1)) {
+			MovieTable table = journal.recover();
+			assertThat(table.get(4)
+							.getTitle()).isEqualTo("movie4");
+		}
+	}
+
+	@Test
+	void writesAfterCloseFailInsteadOfWaiting() throws IOException {
+		Path directory = Files.createTempDirectory("movies");
+		MovieJournal journal = new MovieJournal(directory);
+		InMemoryMovieRepository repository = new InMemoryMovieRepository(directory, journal);
+		repository.close();
+
+		assertThat(journal.commit()).isCompletedExceptionally();
+		assertThatThrownBy(() -> repository	.deleteMovie(1)
+											.block(Duration.ofSeconds(5))).isInstanceOf(IllegalStateException.class);
+	}
+
+}
@@ -0,0 +1,53 @@
+package io.pivotal.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+class MovieTableTests {
+
+	private static final int MOVIES = 100_000;
+
+	@Test
+	void tableKeepsMoviesById() {
+		MovieTable table = new MovieTable();
+		Movie jaws = new Movie("jaws", "other");
+
+		assertThat(table.put(5000, jaws)).isNull();
+		assertThat(table.get(5000)).isSameAs(jaws);
+		assertThat(table.get(4999)).isNull();
+		assertThat(table.get(-1)).isNull();
+		assertThat(table.size()).isEqualTo(1);
+
+		assertThat(table.remove(5000)).isSameAs(jaws);
+		assertThat(table.get(5000)).isNull();
+		assertThat(table.size()).isZero();
+	}
+
+	/**
+	 * Slots are allocated a chunk at a time, and only for chunks that hold a
+	 * used id. The heap per entry against a HashMap is measured by
+	 * MovieTableBenchmark.
+	 */
+	@Test
+	void tableAllocatesChunksOnlyForUsedIds() {
+		MovieTable table = new MovieTable();
+		Movie movie = new Movie("avengers", "action");
+		assertThat(table.allocatedChunks()).isZero();
+
+		for (int id = 1; id <= MOVIES; id++) {
+			table.put(id, movie);
+		}
+		assertThat(table.size()).isEqualTo(MOVIES);
+		assertThat(table.allocatedChunks()).isEqualTo(MOVIES / MovieTable.CHUNK_SIZE + 1);
+
+		// A far away id adds a single chunk, not the ones in between
+		table.put(100 * MOVIES, movie);
+		assertThat(table.allocatedChunks()).isEqualTo(MOVIES / MovieTable.CHUNK_SIZE + 2);
+		assertThat(table.nextId(MOVIES + 1, Integer.MAX_VALUE)).isEqualTo(100 * MOVIES);
+	}
+
+}
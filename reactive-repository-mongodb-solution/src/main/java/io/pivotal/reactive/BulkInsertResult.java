@@ -0,0 +1,35 @@
+package io.pivotal.reactive;
+
+import java.time.Duration;
+
+public class BulkInsertResult {
+
+	private final long batch;
+	private final int documents;
+	private final Duration latency;
+
+	public BulkInsertResult(long batch, int documents, Duration latency) {
+		this.batch = batch;
+		this.documents = documents;
+		this.latency = latency;
+	}
+
+	public long getBatch() {
+		return batch;
+	}
+
+	public int getDocuments() {
+		return documents;
+	}
+
+	public Duration getLatency() {
+		return latency;
+	}
+
+	@Override
+	public String toString() {
+		return "BulkInsertResult [batch=" + batch + ", documents=" + documents + ", latency=" + latency.toMillis()
+				+ "ms]";
+	}
+
+}
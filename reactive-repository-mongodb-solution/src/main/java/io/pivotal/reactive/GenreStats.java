@@ -0,0 +1,57 @@
+package io.pivotal.reactive;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Number of movies in a genre plus a few of their titles, as computed by
+ * {@link ReactiveMovieRepositoryCustom#genreStats(int)}.
+ */
+public class GenreStats {
+
+	private final String genre;
+	private final long count;
+	private final List<String> sampleTitles;
+
+	public GenreStats(String genre, long count, List<String> sampleTitles) {
+		this.genre = genre;
+		this.count = count;
+		this.sampleTitles = sampleTitles;
+	}
+
+	public String getGenre() {
+		return genre;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public List<String> getSampleTitles() {
+		return sampleTitles;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof GenreStats)) {
+			return false;
+		}
+		GenreStats stats = (GenreStats) other;
+		return count == stats.count && Objects.equals(genre, stats.genre)
+				&& Objects.equals(sampleTitles, stats.sampleTitles);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(genre, count, sampleTitles);
+	}
+
+	@Override
+	public String toString() {
+		return "GenreStats [genre=" + genre + ", count=" + count + ", sampleTitles=" + sampleTitles + "]";
+	}
+
+}
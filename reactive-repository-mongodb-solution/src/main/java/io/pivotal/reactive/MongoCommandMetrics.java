@@ -0,0 +1,124 @@
+package io.pivotal.reactive;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every command the driver sends, tagged by command, collection and
+ * outcome, and logs the commands that take longer than the slow command
+ * threshold together with their filter or pipeline.
+ */
+class MongoCommandMetrics implements CommandListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(MongoCommandMetrics.class);
+	// Parts of a command that tell which query was slow
+	private static final List<String> QUERY_FIELDS = Arrays.asList("filter", "pipeline", "query", "sort");
+
+	private final MeterRegistry registry;
+	private final long slowCommandThresholdNanos;
+	private final ConcurrentMap<Integer, StartedCommand> inFlight = new ConcurrentHashMap<>();
+
+	MongoCommandMetrics(MeterRegistry registry, Duration slowCommandThreshold) {
+		this.registry = registry;
+		this.slowCommandThresholdNanos = slowCommandThreshold.toNanos();
+	}
+
+	@Override
+	public void commandStarted(CommandStartedEvent event) {
+		BsonDocument command = event.getCommand();
+		// The command document is only valid during this callback, so the
+		// query parts are copied
+		BsonDocument query = new BsonDocument();
+		for (String field : QUERY_FIELDS) {
+			BsonValue value = command.get(field);
+			if (value != null) {
+				query.put(field, copy(value));
+			}
+		}
+		inFlight.put(event.getRequestId(),
+				new StartedCommand(collection(event.getCommandName(), command), query.isEmpty() ? null : query));
+	}
+
+	@Override
+	public void commandSucceeded(CommandSucceededEvent event) {
+		completed(event.getRequestId(), event.getCommandName(), "success",
+				event.getElapsedTime(TimeUnit.NANOSECONDS));
+	}
+
+	@Override
+	public void commandFailed(CommandFailedEvent event) {
+		completed(event.getRequestId(), event.getCommandName(), "failure",
+				event.getElapsedTime(TimeUnit.NANOSECONDS));
+	}
+
+	private void completed(int requestId, String commandName, String outcome, long elapsedNanos) {
+		StartedCommand started = inFlight.remove(requestId);
+		String collection = started != null ? started.collection : "unknown";
+		Timer	.builder("mongodb.driver.commands")
+				.description("Time spent in MongoDB commands")
+				.tags("command", commandName, "collection", collection, "outcome", outcome)
+				.publishPercentileHistogram()
+				.register(registry)
+				.record(elapsedNanos, TimeUnit.NANOSECONDS);
+		if (elapsedNanos >= slowCommandThresholdNanos) {
+			logger.warn("Slow MongoDB command {} on {} took {}ms ({}): {}", commandName, collection,
+					TimeUnit.NANOSECONDS.toMillis(elapsedNanos), outcome,
+					started != null && started.query != null ? started.query.toJson() : "{}");
+		}
+	}
+
+	private static BsonValue copy(BsonValue value) {
+		if (value.isDocument()) {
+			return value.asDocument()
+						.clone();
+		}
+		if (value.isArray()) {
+			return value.asArray()
+						.clone();
+		}
+		return value;
+	}
+
+	private static String collection(String commandName, BsonDocument command) {
+		BsonValue target = command.get(commandName);
+		if (target != null && target.isString()) {
+			return target	.asString()
+							.getValue();
+		}
+		// getMore and killCursors name the collection separately
+		BsonValue collection = command.get("collection");
+		return collection != null && collection.isString() ? collection	.asString()
+																		.getValue()
+				: "none";
+	}
+
+	private static class StartedCommand {
+
+		private final String collection;
+		private final BsonDocument query;
+
+		StartedCommand(String collection, BsonDocument query) {
+			this.collection = collection;
+			this.query = query;
+		}
+
+	}
+
+}
@@ -0,0 +1,43 @@
+package io.pivotal.reactive;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Publishes MongoDB command timings and repository query metrics to
+ * Micrometer. Commands slower than
+ * {@code movies.mongo.slow-command-threshold-millis} are logged.
+ */
+@Configuration
+public class MongoMetricsConfiguration {
+
+	// Without actuator nothing else provides a registry
+	@Bean
+	@ConditionalOnMissingBean
+	public MeterRegistry meterRegistry() {
+		return new SimpleMeterRegistry();
+	}
+
+	@Bean
+	public MongoClientSettingsBuilderCustomizer mongoCommandMetricsCustomizer(MeterRegistry meterRegistry,
+			@Value("${movies.mongo.slow-command-threshold-millis:100}") long slowCommandThresholdMillis) {
+		return settings -> settings.addCommandListener(
+				new MongoCommandMetrics(meterRegistry, Duration.ofMillis(slowCommandThresholdMillis)));
+	}
+
+	// Static, as post-processors are created before the other beans
+	@Bean
+	public static RepositoryMetrics repositoryMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+		return new RepositoryMetrics(meterRegistry);
+	}
+
+}
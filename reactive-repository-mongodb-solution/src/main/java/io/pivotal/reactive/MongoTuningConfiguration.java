@@ -0,0 +1,89 @@
+package io.pivotal.reactive;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.WriteConcernResolver;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+
+/**
+ * Applies {@link MongoTuningProperties} to the client Spring Boot creates and
+ * to the template behind the repositories.
+ */
+@Configuration
+@EnableConfigurationProperties(MongoTuningProperties.class)
+public class MongoTuningConfiguration {
+
+	private final MongoTuningProperties properties;
+
+	public MongoTuningConfiguration(MongoTuningProperties properties) {
+		this.properties = properties;
+	}
+
+	@Bean
+	public MongoClientSettingsBuilderCustomizer mongoTuningCustomizer() {
+		MongoTuningProperties.Pool pool = properties.getPool();
+		MongoTuningProperties.Socket socket = properties.getSocket();
+		return settings -> settings	.applyToConnectionPoolSettings(builder -> {
+										if (pool.getMinSize() != null) {
+											builder.minSize(pool.getMinSize());
+										}
+										if (pool.getMaxSize() != null) {
+											builder.maxSize(pool.getMaxSize());
+										}
+										if (pool.getMaxWaitTime() != null) {
+											builder.maxWaitTime(pool	.getMaxWaitTime()
+																		.toMillis(),
+													TimeUnit.MILLISECONDS);
+										}
+									})
+									.applyToSocketSettings(builder -> {
+										if (socket.getConnectTimeout() != null) {
+											builder.connectTimeout((int) socket	.getConnectTimeout()
+																				.toMillis(),
+													TimeUnit.MILLISECONDS);
+										}
+										if (socket.getReceiveBufferSize() != null) {
+											builder.receiveBufferSize(socket.getReceiveBufferSize());
+										}
+										if (socket.getSendBufferSize() != null) {
+											builder.sendBufferSize(socket.getSendBufferSize());
+										}
+									});
+	}
+
+	/**
+	 * Replaces the template Spring Boot would create, adding the write concern
+	 * per collection and the read preference.
+	 */
+	@Bean
+	public ReactiveMongoTemplate reactiveMongoTemplate(ReactiveMongoDatabaseFactory databaseFactory,
+			MongoConverter converter, WriteConcernResolver writeConcernResolver) {
+		ReactiveMongoTemplate template = new ReactiveMongoTemplate(databaseFactory, converter);
+		template.setWriteConcernResolver(writeConcernResolver);
+		if (properties.getReadPreference() != null) {
+			template.setReadPreference(ReadPreference.valueOf(properties.getReadPreference()));
+		}
+		return template;
+	}
+
+	@Bean
+	public WriteConcernResolver writeConcernResolver() {
+		MongoTuningProperties.WriteConcerns writeConcerns = properties.getWriteConcern();
+		return action -> {
+			String name = writeConcerns	.getCollections()
+										.getOrDefault(action.getCollectionName(), writeConcerns.getDefaultConcern());
+			// Fall back to the concern of the operation, i.e. the client default
+			return name != null ? WriteConcern.valueOf(name) : action.getDefaultWriteConcern();
+		};
+	}
+
+}
@@ -0,0 +1,136 @@
+package io.pivotal.reactive;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Client and write tuning under {@code movies.mongo}, see
+ * application.properties for an example. Settings that are left unset keep
+ * the driver defaults.
+ */
+@ConfigurationProperties("movies.mongo")
+public class MongoTuningProperties {
+
+	private final Pool pool = new Pool();
+	private final Socket socket = new Socket();
+	private final WriteConcerns writeConcern = new WriteConcerns();
+	// Name as accepted by ReadPreference.valueOf, e.g. secondaryPreferred
+	private String readPreference;
+
+	public Pool getPool() {
+		return pool;
+	}
+
+	public Socket getSocket() {
+		return socket;
+	}
+
+	public WriteConcerns getWriteConcern() {
+		return writeConcern;
+	}
+
+	public String getReadPreference() {
+		return readPreference;
+	}
+
+	public void setReadPreference(String readPreference) {
+		this.readPreference = readPreference;
+	}
+
+	public static class Pool {
+
+		private Integer minSize;
+		private Integer maxSize;
+		// How long an operation waits for a free connection before failing
+		private Duration maxWaitTime;
+
+		public Integer getMinSize() {
+			return minSize;
+		}
+
+		public void setMinSize(Integer minSize) {
+			this.minSize = minSize;
+		}
+
+		public Integer getMaxSize() {
+			return maxSize;
+		}
+
+		public void setMaxSize(Integer maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		public Duration getMaxWaitTime() {
+			return maxWaitTime;
+		}
+
+		public void setMaxWaitTime(Duration maxWaitTime) {
+			this.maxWaitTime = maxWaitTime;
+		}
+
+	}
+
+	public static class Socket {
+
+		private Duration connectTimeout;
+		private Integer receiveBufferSize;
+		private Integer sendBufferSize;
+
+		public Duration getConnectTimeout() {
+			return connectTimeout;
+		}
+
+		public void setConnectTimeout(Duration connectTimeout) {
+			this.connectTimeout = connectTimeout;
+		}
+
+		public Integer getReceiveBufferSize() {
+			return receiveBufferSize;
+		}
+
+		public void setReceiveBufferSize(Integer receiveBufferSize) {
+			this.receiveBufferSize = receiveBufferSize;
+		}
+
+		public Integer getSendBufferSize() {
+			return sendBufferSize;
+		}
+
+		public void setSendBufferSize(Integer sendBufferSize) {
+			this.sendBufferSize = sendBufferSize;
+		}
+
+	}
+
+	/**
+	 * Write concerns by name as accepted by WriteConcern.valueOf, e.g.
+	 * UNACKNOWLEDGED, W1 or MAJORITY.
+	 */
+	public static class WriteConcerns {
+
+		private String defaultConcern;
+		// Collection name -> write concern, overriding the default
+		private Map<String, String> collections = new HashMap<>();
+
+		public String getDefaultConcern() {
+			return defaultConcern;
+		}
+
+		public void setDefaultConcern(String defaultConcern) {
+			this.defaultConcern = defaultConcern;
+		}
+
+		public Map<String, String> getCollections() {
+			return collections;
+		}
+
+		public void setCollections(Map<String, String> collections) {
+			this.collections = collections;
+		}
+
+	}
+
+}
@@ -15,6 +15,10 @@ public class Movie {
 		this.genre = genre;
 	}
 	
+	public String getId() {
+		return id;
+	}
+
 	public String getGenre() {
 		return genre;
 	}
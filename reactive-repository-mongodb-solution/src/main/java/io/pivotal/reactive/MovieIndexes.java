@@ -0,0 +1,49 @@
+package io.pivotal.reactive;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Creates the indexes behind the derived queries of
+ * {@link ReactiveMovieRepository}, so findByTitle, findByGenre and
+ * findByTitleAndGenre use an index scan instead of a collection scan.
+ * <p>
+ * Each compound index also serves lookups on its first field through its
+ * prefix, so no separate title or genre index is created. The (genre, title)
+ * index also serves the (genre, title) sort that genreStats starts with.
+ */
+@Component
+public class MovieIndexes {
+
+	private final ReactiveMongoOperations operations;
+
+	public MovieIndexes(ReactiveMongoOperations operations) {
+		this.operations = operations;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void createOnStartup() {
+		ensureIndexes().block();
+	}
+
+	/**
+	 * Creates any missing index; indexes that already exist are left as is.
+	 */
+	public Mono<Void> ensureIndexes() {
+		ReactiveIndexOperations indexOperations = operations.indexOps(Movie.class);
+		return Flux	.concat(indexOperations.ensureIndex(new Index()	.on("title", Direction.ASC)
+																	.on("genre", Direction.ASC)),
+							indexOperations.ensureIndex(new Index()	.on("genre", Direction.ASC)
+																	.on("title", Direction.ASC)))
+					.then();
+	}
+
+}
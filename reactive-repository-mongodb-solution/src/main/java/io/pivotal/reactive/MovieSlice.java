@@ -0,0 +1,36 @@
+package io.pivotal.reactive;
+
+import java.util.List;
+
+/**
+ * One page of movies in id order plus the cursor to pass back for the next
+ * page, which is {@code null} on the last page.
+ */
+public class MovieSlice {
+
+	private final List<Movie> content;
+	private final String nextCursor;
+
+	public MovieSlice(List<Movie> content, String nextCursor) {
+		this.content = content;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<Movie> getContent() {
+		return content;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public boolean hasNext() {
+		return nextCursor != null;
+	}
+
+	@Override
+	public String toString() {
+		return "MovieSlice [size=" + content.size() + ", nextCursor=" + nextCursor + "]";
+	}
+
+}
@@ -0,0 +1,11 @@
+package io.pivotal.reactive;
+
+/**
+ * Closed projection of {@link Movie} for listings.
+ */
+public interface MovieSummary {
+
+	String getId();
+
+	String getTitle();
+}
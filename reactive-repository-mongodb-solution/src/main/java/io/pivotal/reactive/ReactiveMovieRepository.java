@@ -1,5 +1,6 @@
 package io.pivotal.reactive;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.data.mongodb.repository.Tailable;
@@ -13,14 +14,25 @@ import reactor.core.publisher.Mono;
 //- Study all the methods that are available from ReactiveMovieRepository
 //interface and its parent interfaces (using Outline view of IDE)
 
-public interface ReactiveMovieRepository extends ReactiveMongoRepository<Movie, String> {
+public interface ReactiveMovieRepository extends ReactiveMongoRepository<Movie, String>, ReactiveMovieRepositoryCustom {
 	Flux<Movie> findByTitle(String title);
 
 	@Query("{ 'title': ?0, 'genre': ?1}")
 	Mono<Movie> findByTitleAndGenre(String Title, String Genre);
 	
 	Flux<Movie> findByGenre(Mono<String> Genre);
+
+	// Listings that only need id and title; the projection makes Mongo return
+	// just those fields instead of whole documents
+	Flux<MovieSummary> findAllSummariesBy();
+	Flux<MovieSummary> findSummariesByGenre(String genre);
 	Mono<Movie> findByTitleAndGenre(Mono<String> Title, String Genre);
+
+	// Keyset pagination: pass the id of the last movie of the previous page and
+	// PageRequest.of(0, size). The _id index seeks straight to the page, so
+	// deep pages cost the same as the first one, unlike skip-based paging.
+	Flux<Movie> findAllByOrderByIdAsc(Pageable pageable);
+	Flux<Movie> findByIdGreaterThanOrderByIdAsc(String id, Pageable pageable);
 	
 	/**
 	 * Use a tailable cursor to emit a stream of entities as new entities 
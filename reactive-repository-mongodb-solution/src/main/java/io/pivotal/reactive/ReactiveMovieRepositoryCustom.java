@@ -0,0 +1,40 @@
+package io.pivotal.reactive;
+
+import java.time.Duration;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Operations of {@link ReactiveMovieRepository} that cannot be derived from
+ * method names, implemented in {@link ReactiveMovieRepositoryCustomImpl}.
+ */
+public interface ReactiveMovieRepositoryCustom {
+
+	/**
+	 * Inserts the movies with one unordered insertMany per batch of
+	 * {@code batchSize} documents, keeping a bounded number of batches in
+	 * flight. Emits one result per batch as it is acknowledged.
+	 */
+	Flux<BulkInsertResult> bulkInsert(Flux<Movie> movies, int batchSize);
+
+	/**
+	 * Reads the page of up to {@code size} movies that follows the given
+	 * cursor, or the first page when the cursor is {@code null}.
+	 */
+	Mono<MovieSlice> findSlice(String cursor, int size);
+
+	/**
+	 * Counts the movies per genre on the server, most common genre first,
+	 * with up to {@code sampleSize} titles of each in alphabetical order.
+	 */
+	Flux<GenreStats> genreStats(int sampleSize);
+
+	/**
+	 * Re-runs {@link #genreStats(int)} every {@code interval} and emits only
+	 * the genres whose statistics changed since the previous run; the first
+	 * run emits all of them. A genre that disappears is emitted with a count
+	 * of zero.
+	 */
+	Flux<GenreStats> genreStatsUpdates(int sampleSize, Duration interval);
+}
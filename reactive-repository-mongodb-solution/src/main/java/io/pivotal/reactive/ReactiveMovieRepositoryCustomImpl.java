@@ -0,0 +1,148 @@
+package io.pivotal.reactive;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.mongodb.client.model.InsertManyOptions;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class ReactiveMovieRepositoryCustomImpl implements ReactiveMovieRepositoryCustom {
+
+	// Enough to keep the connection busy without queueing unbounded work on the server
+	static final int MAX_BATCHES_IN_FLIGHT = 4;
+
+	private final ReactiveMongoOperations operations;
+
+	ReactiveMovieRepositoryCustomImpl(ReactiveMongoOperations operations) {
+		this.operations = operations;
+	}
+
+	@Override
+	public Flux<BulkInsertResult> bulkInsert(Flux<Movie> movies, int batchSize) {
+		String collection = operations.getCollectionName(Movie.class);
+		return movies	.buffer(batchSize)
+						.index()
+						.flatMap(batch -> insertBatch(collection, batch.getT1(), batch.getT2()),
+								MAX_BATCHES_IN_FLIGHT);
+	}
+
+	@Override
+	public Mono<MovieSlice> findSlice(String cursor, int size) {
+		if (size < 1) {
+			return Mono.error(new IllegalArgumentException("Slice size must be positive: " + size));
+		}
+		Query query = new Query().with(Sort.by("id"))
+								 // One extra movie tells whether there is a next page
+								 .limit(size + 1);
+		if (cursor != null) {
+			query.addCriteria(Criteria	.where("id")
+										.gt(cursor));
+		}
+		return operations	.find(query, Movie.class)
+							.collectList()
+							.map(movies -> {
+								if (movies.size() <= size) {
+									return new MovieSlice(movies, null);
+								}
+								List<Movie> content = movies.subList(0, size);
+								return new MovieSlice(content, content	.get(size - 1)
+																		.getId());
+							});
+	}
+
+	/**
+	 * One pipeline and one round trip. The titles a genre $pushes are cut to
+	 * the sample by $slice; with allowDiskUse a $group that outgrows the
+	 * server's memory limit spills to disk instead of failing.
+	 */
+	@Override
+	public Flux<GenreStats> genreStats(int sampleSize) {
+		if (sampleSize < 0) {
+			return Flux.error(new IllegalArgumentException("Sample size must not be negative: " + sampleSize));
+		}
+		TypedAggregation<Movie> aggregation = Aggregation	.newAggregation(Movie.class,
+																// Pushes each genre's titles in alphabetical order
+																Aggregation.sort(Sort.by("genre", "title")),
+																Aggregation	.group("genre")
+																			.count()
+																			.as("count")
+																			.push("title")
+																			.as("titles"),
+																Aggregation	.project("count")
+																			.and("titles")
+																			.slice(sampleSize)
+																			.as("sampleTitles")
+																			.and("genre")
+																			.previousOperation(),
+																Aggregation.sort(Sort	.by(Direction.DESC, "count")
+																						.and(Sort.by(Direction.ASC, "genre"))))
+														.withOptions(AggregationOptions	.builder()
+																						.allowDiskUse(true)
+																						.build());
+		return operations.aggregate(aggregation, GenreStats.class);
+	}
+
+	@Override
+	public Flux<GenreStats> genreStatsUpdates(int sampleSize, Duration interval) {
+		return Flux.defer(() -> {
+			Map<String, GenreStats> previous = new HashMap<>();
+			return Flux	.interval(Duration.ZERO, interval)
+						// Skip ticks while an aggregation is still running
+						.onBackpressureDrop()
+						.concatMap(tick -> genreStats(sampleSize).collectList(), 1)
+						.flatMapIterable(current -> changes(previous, current));
+		});
+	}
+
+	private static List<GenreStats> changes(Map<String, GenreStats> previous, List<GenreStats> current) {
+		List<GenreStats> changes = new ArrayList<>();
+		Map<String, GenreStats> removed = new HashMap<>(previous);
+		for (GenreStats stats : current) {
+			removed.remove(stats.getGenre());
+			if (!stats.equals(previous.put(stats.getGenre(), stats))) {
+				changes.add(stats);
+			}
+		}
+		for (String genre : removed.keySet()) {
+			previous.remove(genre);
+			changes.add(new GenreStats(genre, 0, Collections.emptyList()));
+		}
+		return changes;
+	}
+
+	private Mono<BulkInsertResult> insertBatch(String collection, long index, List<Movie> batch) {
+		List<Document> documents = new ArrayList<>(batch.size());
+		for (Movie movie : batch) {
+			Document document = new Document();
+			operations	.getConverter()
+						.write(movie, document);
+			documents.add(document);
+		}
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			// Unordered lets the server apply the batch without stopping at the first error
+			return operations	.execute(collection,
+										mongoCollection -> mongoCollection.insertMany(documents,
+												new InsertManyOptions().ordered(false)))
+								.then(Mono.fromCallable(() -> new BulkInsertResult(index, documents.size(),
+										Duration.ofNanos(System.nanoTime() - start))));
+		});
+	}
+
+}
@@ -0,0 +1,114 @@
+package io.pivotal.reactive;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Wraps the {@link ReactiveMovieRepository} bean so that every subscription
+ * to one of its queries is measured, tagged by repository method:
+ * <ul>
+ * <li>{@code movies.repository.latency}: from subscription to the first
+ * document, or to completion when there is none</li>
+ * <li>{@code movies.repository.documents}: documents emitted per
+ * subscription</li>
+ * <li>{@code movies.repository.cursor.lifetime}: from subscription until the
+ * Flux completes, fails or is cancelled, which for tailable cursors is how
+ * long they stayed open</li>
+ * </ul>
+ */
+class RepositoryMetrics implements BeanPostProcessor {
+
+	private final ObjectProvider<MeterRegistry> registry;
+
+	RepositoryMetrics(ObjectProvider<MeterRegistry> registry) {
+		this.registry = registry;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) {
+		if (!(bean instanceof ReactiveMovieRepository)) {
+			return bean;
+		}
+		ProxyFactory proxyFactory = new ProxyFactory(ReactiveMovieRepository.class, (MethodInterceptor) this::measure);
+		proxyFactory.setTarget(bean);
+		return proxyFactory.getProxy();
+	}
+
+	private Object measure(MethodInvocation invocation) throws Throwable {
+		Object result = invocation.proceed();
+		String method = invocation	.getMethod()
+									.getName();
+		if (result instanceof Flux) {
+			return measure(method, (Flux<?>) result, true);
+		}
+		if (result instanceof Mono) {
+			return measure(method, Flux.from((Mono<?>) result), false).next();
+		}
+		return result;
+	}
+
+	private <T> Flux<T> measure(String method, Flux<T> query, boolean cursor) {
+		return Flux.defer(() -> {
+			long start = System.nanoTime();
+			AtomicLong documents = new AtomicLong();
+			AtomicBoolean first = new AtomicBoolean(true);
+			return query.doOnNext(document -> {
+				documents.incrementAndGet();
+				if (first.compareAndSet(true, false)) {
+					latency(method).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+				}
+			})
+						.doFinally(signal -> {
+							long elapsed = System.nanoTime() - start;
+							if (first.get() && signal == SignalType.ON_COMPLETE) {
+								latency(method).record(elapsed, TimeUnit.NANOSECONDS);
+							}
+							MeterRegistry meters = registry.getObject();
+							DistributionSummary	.builder("movies.repository.documents")
+												.tags("method", method)
+												.register(meters)
+												.record(documents.get());
+							if (cursor) {
+								Timer	.builder("movies.repository.cursor.lifetime")
+										.tags("method", method, "outcome", outcome(signal))
+										.register(meters)
+										.record(elapsed, TimeUnit.NANOSECONDS);
+							}
+						});
+		});
+	}
+
+	private Timer latency(String method) {
+		return Timer.builder("movies.repository.latency")
+					.tags("method", method)
+					.publishPercentileHistogram()
+					.register(registry.getObject());
+	}
+
+	private static String outcome(SignalType signal) {
+		switch (signal) {
+		case ON_COMPLETE:
+			return "complete";
+		case ON_ERROR:
+			return "error";
+		default:
+			return "cancel";
+		}
+	}
+
+}
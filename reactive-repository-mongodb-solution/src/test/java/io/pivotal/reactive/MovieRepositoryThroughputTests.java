@@ -0,0 +1,191 @@
+package io.pivotal.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Throughput regression suite, run with {@code mvn test -Pembedded-mongo}.
+ * <p>
+ * Each test logs its measurement and fails when it is worse than the
+ * {@code throughput.baseline.*} system property by more than
+ * {@code throughput.tolerance}, e.g. 0.25 for 25%. The profile sets
+ * conservative baselines, see the pom.
+ */
+@RunWith(JUnitPlatform.class)
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+public class MovieRepositoryThroughputTests {
+
+	private static final int INSERTS = 50_000;
+	private static final int GENRES = 500;
+	private static final int WARMUP_QUERIES = 100;
+	private static final int QUERIES = 1000;
+	private static final int TAILED_MOVIES = 500;
+
+	private static final Logger logger = LoggerFactory.getLogger(MovieRepositoryThroughputTests.class);
+
+	@Autowired
+	ReactiveMovieRepository repository;
+	@Autowired
+	ReactiveMongoOperations operations;
+	@Autowired
+	MovieIndexes indexes;
+
+	@BeforeEach
+	void setUp() {
+		recreateCollection(CollectionOptions.empty());
+	}
+
+	@Test
+	void insertThroughput() {
+
+		long start = System.nanoTime();
+		repository	.bulkInsert(movies(INSERTS), 1000)
+					.blockLast();
+		double insertsPerSecond = INSERTS / seconds(System.nanoTime() - start);
+
+		logger.info("Inserts: {}/s", Math.round(insertsPerSecond));
+		assertThat(insertsPerSecond).isGreaterThanOrEqualTo(baseline("insertsPerSecond") * (1 - tolerance()));
+	}
+
+	@Test
+	void findByGenreLatency() {
+
+		repository	.bulkInsert(movies(INSERTS), 1000)
+					.blockLast();
+
+		for (int i = 0; i < WARMUP_QUERIES; i++) {
+			findByGenre(i);
+		}
+		long[] latencies = new long[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			long start = System.nanoTime();
+			findByGenre(i);
+			latencies[i] = System.nanoTime() - start;
+		}
+
+		logger.info("findByGenre: p50 {}ms, p99 {}ms, max {}ms", millis(percentile(latencies, 50)),
+				millis(percentile(latencies, 99)), millis(percentile(latencies, 100)));
+		assertThat(millis(percentile(latencies, 99))).isLessThanOrEqualTo(
+				baseline("findByGenreP99Millis") * (1 + tolerance()));
+	}
+
+	/**
+	 * Lag is the time from handing a movie to save until the tailable cursor
+	 * emits it.
+	 */
+	@Test
+	void tailableCursorLag() throws Exception {
+
+		recreateCollection(CollectionOptions.empty()
+											.size(16 * 1024 * 1024)
+											.capped());
+		// A tailable cursor on an empty capped collection dies right away
+		repository	.save(new Movie("first", "lag"))
+					.block();
+
+		Map<String, Long> sent = new ConcurrentHashMap<>();
+		long[] lags = new long[TAILED_MOVIES];
+		Mono<Void> received = repository.findWithTailableCursorBy()
+										.filter(movie -> sent.containsKey(movie.getTitle()))
+										.index()
+										.doOnNext(indexed -> {
+											long receivedAt = System.nanoTime();
+											String title = indexed	.getT2()
+																	.getTitle();
+											lags[indexed.getT1()
+														.intValue()] = receivedAt - sent.get(title);
+										})
+										.take(TAILED_MOVIES)
+										.then()
+										.cache();
+		Disposable subscription = received.subscribe();
+		Thread.sleep(100);
+
+		Flux.range(0, TAILED_MOVIES)
+			.concatMap(i -> {
+				String title = "tailed" + i;
+				sent.put(title, System.nanoTime());
+				return repository.save(new Movie(title, "lag"));
+			})
+			.blockLast();
+		received.block(Duration.ofSeconds(30));
+		subscription.dispose();
+
+		logger.info("Tailable cursor lag: p50 {}ms, p99 {}ms", millis(percentile(lags, 50)),
+				millis(percentile(lags, 99)));
+		assertThat(millis(percentile(lags, 99))).isLessThanOrEqualTo(baseline("tailLagP99Millis") * (1 + tolerance()));
+	}
+
+	private void recreateCollection(CollectionOptions options) {
+		operations	.collectionExists(Movie.class)
+					.flatMap(exists -> exists ? operations.dropCollection(Movie.class) : Mono.just(exists))
+					.then(operations.createCollection(Movie.class, options))
+					.then(indexes.ensureIndexes())
+					.block();
+	}
+
+	private void findByGenre(int i) {
+		repository	.findByGenre(Mono.just("genre" + (i % GENRES)))
+					.blockLast();
+	}
+
+	private static Flux<Movie> movies(int count) {
+		return Flux	.range(0, count)
+					.map(i -> new Movie("movie" + i, "genre" + (i % GENRES)));
+	}
+
+	private static long percentile(long[] values, int percentile) {
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(index, 0)];
+	}
+
+	private static double seconds(long nanos) {
+		return nanos / 1_000_000_000.0;
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+
+	private static double baseline(String name) {
+		return Double.parseDouble(requiredProperty("throughput.baseline." + name));
+	}
+
+	private static double tolerance() {
+		return Double.parseDouble(requiredProperty("throughput.tolerance"));
+	}
+
+	// Run outside the embedded-mongo profile, there is nothing to compare with
+	private static String requiredProperty(String name) {
+		String value = System.getProperty(name);
+		if (value == null) {
+			throw new IllegalStateException(name + " is not set, run with mvn test -Pembedded-mongo");
+		}
+		return value;
+	}
+
+}
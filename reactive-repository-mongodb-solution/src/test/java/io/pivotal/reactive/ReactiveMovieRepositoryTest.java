@@ -1,10 +1,15 @@
 package io.pivotal.reactive;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,13 +17,17 @@ import org.junit.platform.runner.JUnitPlatform;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.mongodb.core.CollectionOptions;
 import org.springframework.data.mongodb.core.ReactiveMongoOperations;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
 @RunWith(JUnitPlatform.class)
 @ExtendWith(SpringExtension.class)
@@ -29,6 +38,10 @@ public class ReactiveMovieRepositoryTest {
 	ReactiveMovieRepository repository;
 	@Autowired
 	ReactiveMongoOperations operations;
+	@Autowired
+	MovieIndexes indexes;
+	@Autowired
+	MeterRegistry meterRegistry;
 
 	@BeforeEach
 	void setUp() {
@@ -38,6 +51,7 @@ public class ReactiveMovieRepositoryTest {
 					.then(operations.createCollection(Movie.class, CollectionOptions.empty()
 																					.size(1024 * 1024)
 																					.maxDocuments(100)))
+					.then(indexes.ensureIndexes())
 					.block();
 
 		repository	.saveAll(Flux.just(new Movie("jaws", "romance"), new Movie("avengers", "action"),
@@ -117,6 +131,47 @@ public class ReactiveMovieRepositoryTest {
 		assertThat(movies).hasSize(2);
 	}
 
+	/**
+	 * Repository calls and the commands behind them show up in the registry.
+	 */
+	@Test
+	void shouldRecordQueryMetrics() {
+
+		repository	.findByTitle("jaws")
+					.blockLast();
+
+		assertThat(meterRegistry.get("movies.repository.documents")
+								.tag("method", "findByTitle")
+								.summary()
+								.totalAmount()).isGreaterThanOrEqualTo(1);
+		assertThat(meterRegistry.get("movies.repository.cursor.lifetime")
+								.tags("method", "findByTitle", "outcome", "complete")
+								.timer()
+								.count()).isGreaterThanOrEqualTo(1);
+		assertThat(meterRegistry.get("mongodb.driver.commands")
+								.tags("command", "find", "collection", operations.getCollectionName(Movie.class))
+								.timer()
+								.count()).isGreaterThanOrEqualTo(1);
+	}
+
+	/**
+	 * Summaries only carry the projected fields.
+	 */
+	@Test
+	void shouldQuerySummariesWithProjection() {
+
+		List<MovieSummary> summaries = repository	.findSummariesByGenre("action")
+													.collectList()
+													.block();
+
+		assertThat(summaries)	.extracting(MovieSummary::getTitle)
+								.containsExactlyInAnyOrder("avengers", "movie4");
+		assertThat(summaries).allSatisfy(summary -> assertThat(summary.getId()).isNotNull());
+		assertThat(repository	.findAllSummariesBy()
+								.count()
+								.block()).isEqualTo(4);
+	}
+
 	/**
 	 * Fetch data using a string query.
 	 */
@@ -177,6 +232,31 @@ public class ReactiveMovieRepositoryTest {
 		assertThat(movie).isNotNull();
 	}
 
+	/**
+	 * The derived and string queries must be answered from an index (IXSCAN)
+	 * rather than a collection scan.
+	 */
+	@Test
+	void shouldUseIndexesForQueries() {
+
+		Document byTitle = new Document("title", "jaws");
+		Document byGenre = new Document("genre", "action");
+		Document byTitleAndGenre = new Document("title", "avengers").append("genre", "action");
+
+		for (Document filter : Arrays.asList(byTitle, byGenre, byTitleAndGenre)) {
+			assertThat(winningPlan(filter)).contains("IXSCAN")
+										   .doesNotContain("COLLSCAN");
+		}
+	}
+
+	private String winningPlan(Document filter) {
+		Document find = new Document("find", operations.getCollectionName(Movie.class)).append("filter", filter);
+		Document explain = operations	.executeCommand(new Document("explain", find))
+										.block();
+		return ((Document) explain.get("queryPlanner")).get("winningPlan", Document.class)
+													   .toJson();
+	}
+
 	/**
 	 * This sample performs a count, inserts data and performs a count again using
 	 * reactive operator chaining.
@@ -253,6 +333,124 @@ public class ReactiveMovieRepositoryTest {
 		countDownLatch.await();
 	}
 
+	/**
+	 * Inserts a larger catalog with one unordered insertMany per batch instead
+	 * of one round trip per document.
+	 */
+	@Test
+	void shouldBulkInsertInBatches() {
+
+		List<BulkInsertResult> results = repository	.bulkInsert(Flux	.range(0, 10_000)
+																		.map(i -> new Movie("bulk" + i, "drama")),
+															1000)
+													.doOnNext(System.out::println)
+													.collectList()
+													.block();
+
+		assertThat(results).hasSize(10);
+		assertThat(results.stream()
+						  .mapToInt(BulkInsertResult::getDocuments)
+						  .sum()).isEqualTo(10_000);
+		assertThat(repository	.count()
+								.block()).isEqualTo(10_004);
+	}
+
+	/**
+	 * Walks a 100k document collection page by page with the slice cursor, and
+	 * checks that a deep page examines no more documents than the first one.
+	 */
+	@Test
+	void shouldPageThroughLargeCollectionWithKeysetCursor() {
+
+		repository	.bulkInsert(Flux.range(0, 100_000)
+									.map(i -> new Movie("paged" + i, "drama")),
+							10_000)
+					.blockLast();
+
+		int pages = 0;
+		long movies = 0;
+		String previousLastId = null;
+		String cursor = null;
+		do {
+			MovieSlice slice = repository	.findSlice(cursor, 1000)
+											.block();
+			List<Movie> content = slice.getContent();
+			if (previousLastId != null) {
+				assertThat(content	.get(0)
+									.getId()).isGreaterThan(previousLastId);
+			}
+			previousLastId = content.get(content.size() - 1)
+									.getId();
+			movies += content.size();
+			pages++;
+			cursor = slice.getNextCursor();
+		}
+		while (cursor != null);
+
+		assertThat(movies).isEqualTo(100_004);
+		assertThat(pages).isEqualTo(101);
+
+		String deepCursor = repository	.findAllByOrderByIdAsc(PageRequest.of(90_000, 1))
+										.blockLast()
+										.getId();
+		assertThat(repository	.findByIdGreaterThanOrderByIdAsc(deepCursor, PageRequest.of(0, 1000))
+								.count()
+								.block()).isEqualTo(1000);
+		assertThat(docsExamined(new Document())).isEqualTo(docsExamined(
+				new Document("_id", new Document("$gt", new ObjectId(deepCursor)))));
+	}
+
+	private long docsExamined(Document filter) {
+		Document find = new Document("find", operations.getCollectionName(Movie.class))	.append("filter", filter)
+																						.append("sort", new Document("_id", 1))
+																						.append("limit", 1000);
+		Document explain = operations	.executeCommand(new Document("explain", find).append("verbosity",
+				"executionStats"))
+										.block();
+		return ((Document) explain.get("executionStats")).get("totalDocsExamined", Number.class)
+														 .longValue();
+	}
+
+	/**
+	 * Genre statistics are computed by the server in one aggregation.
+	 */
+	@Test
+	void shouldAggregateGenreStatistics() {
+
+		List<GenreStats> stats = repository	.genreStats(1)
+											.collectList()
+											.block();
+
+		assertThat(stats)	.extracting(GenreStats::getGenre, GenreStats::getCount)
+							.containsExactly(tuple("action", 2L), tuple("comic", 1L), tuple("romance", 1L));
+		assertThat(stats.get(0)
+						.getSampleTitles()).containsExactly("avengers");
+	}
+
+	/**
+	 * After the initial statistics only the genre that changed is emitted.
+	 */
+	@Test
+	void shouldStreamGenreStatisticsChanges() {
+
+		List<GenreStats> updates = repository	.genreStatsUpdates(2, Duration.ofMillis(100))
+												.index()
+												.delayUntil(update -> update.getT1() == 2
+														? repository.save(new Movie("movie5", "comic"))
+														: Mono.empty())
+												.map(Tuple2::getT2)
+												.take(4)
+												.collectList()
+												.block(Duration.ofSeconds(10));
+
+		assertThat(updates	.subList(0, 3)
+							.stream()
+							.mapToLong(GenreStats::getCount)
+							.sum()).isEqualTo(4);
+		assertThat(updates.get(3)).isEqualTo(
+				new GenreStats("comic", 2, Arrays.asList("movie5", "sound of music")));
+	}
+
 	/**
 	 * A tailable cursor streams data using {@link Flux} as it arrives inside the
 	 * capped collection.
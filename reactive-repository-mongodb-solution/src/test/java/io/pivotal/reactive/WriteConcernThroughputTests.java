@@ -0,0 +1,118 @@
+package io.pivotal.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoAction;
+import org.springframework.data.mongodb.core.MongoActionOperation;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.WriteConcernResolver;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.mongodb.WriteConcern;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Checks that {@code movies.mongo.write-concern} picks the write concern of
+ * each collection, and reports the latency and throughput of each of them.
+ * On a standalone mongod w:1 and majority cost about the same, so the
+ * numbers are only reported. Run with {@code mvn test -Pembedded-mongo}.
+ */
+@RunWith(JUnitPlatform.class)
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = { "movies.mongo.write-concern.default-concern=W1",
+		"movies.mongo.write-concern.collections[fireandforget]=UNACKNOWLEDGED",
+		"movies.mongo.write-concern.collections[majority]=MAJORITY" })
+public class WriteConcernThroughputTests {
+
+	private static final int WARMUP_INSERTS = 5_000;
+	private static final int INSERTS = 20_000;
+	private static final int CONCURRENCY = 16;
+
+	private static final Logger logger = LoggerFactory.getLogger(WriteConcernThroughputTests.class);
+
+	@Autowired
+	ReactiveMongoTemplate template;
+	@Autowired
+	WriteConcernResolver writeConcernResolver;
+
+	@Test
+	void writeConcernIsResolvedPerCollection() {
+
+		assertThat(ReflectionTestUtils.getField(template, "writeConcernResolver")).isSameAs(writeConcernResolver);
+		assertThat(resolve("fireandforget")).isEqualTo(WriteConcern.UNACKNOWLEDGED);
+		assertThat(resolve("majority")).isEqualTo(WriteConcern.MAJORITY);
+		// Not configured, so the default
+		assertThat(resolve("acknowledged")).isEqualTo(WriteConcern.W1);
+	}
+
+	@Test
+	void reportLatencyPerWriteConcern() {
+
+		// Weakest first, each collection gets its write concern from the resolver
+		Map<String, String> collections = new LinkedHashMap<>();
+		collections.put("fire-and-forget (w:0)", "fireandforget");
+		collections.put("acknowledged (w:1)", "acknowledged");
+		collections.put("majority", "majority");
+
+		// So that the first collection does not pay for the JIT and the connection pool
+		for (String collection : collections.values()) {
+			measure(collection, WARMUP_INSERTS);
+		}
+
+		for (Map.Entry<String, String> collection : collections.entrySet()) {
+			long start = System.nanoTime();
+			long[] latencies = measure(collection.getValue(), INSERTS);
+			double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+			logger.info(String.format("%-22s %8.0f inserts/s, p50 %6.2fms, p99 %6.2fms", collection.getKey(),
+					INSERTS / seconds, latencies[INSERTS / 2] / 1_000_000.0,
+					latencies[INSERTS * 99 / 100] / 1_000_000.0));
+		}
+	}
+
+	private WriteConcern resolve(String collection) {
+		return writeConcernResolver.resolve(new MongoAction(WriteConcern.ACKNOWLEDGED, MongoActionOperation.INSERT,
+				collection, Document.class, new Document(), null));
+	}
+
+	/**
+	 * Inserts into a freshly dropped collection and returns the sorted
+	 * latencies.
+	 */
+	private long[] measure(String collection, int inserts) {
+		template.dropCollection(collection)
+				.block();
+		long[] latencies = new long[inserts];
+		Flux.range(0, inserts)
+			.flatMap(i -> insert(collection, i, latencies), CONCURRENCY)
+			.blockLast();
+		Arrays.sort(latencies);
+		return latencies;
+	}
+
+	private Mono<Void> insert(String collection, int i, long[] latencies) {
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			return template	.insert(new Document("title", "movie" + i), collection)
+							.doOnSuccess(inserted -> latencies[i] = System.nanoTime() - start)
+							.then();
+		});
+	}
+
+}
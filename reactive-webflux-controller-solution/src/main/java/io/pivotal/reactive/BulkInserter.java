@@ -0,0 +1,136 @@
+package io.pivotal.reactive;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+/**
+ * Inserts an uploaded stream of entities with one insertMany per batch of
+ * {@link #BATCH_SIZE}, keeping up to {@link #MAX_BATCHES_IN_FLIGHT} batches
+ * in flight, and emits one {@link BulkResult} per entity in upload order.
+ * A batch that is still filling up is inserted after {@link #BATCH_TIMEOUT},
+ * so a slow upload gets its results while it is still sending.
+ * <p>
+ * Entities without an id get an ObjectId before they are inserted, so after
+ * a failed batch it is always known which ones made it: the bulk write error
+ * says where an ordered insertMany stopped, and the rest of the batch is
+ * retried. Any other failure falls back to inserting the batch one entity at
+ * a time.
+ */
+class BulkInserter<T> {
+
+	static final int BATCH_SIZE = 500;
+	static final int MAX_BATCHES_IN_FLIGHT = 4;
+	static final Duration BATCH_TIMEOUT = Duration.ofMillis(100);
+
+	private final Function<List<T>, Flux<T>> insertAll;
+	private final Function<T, Mono<T>> insertOne;
+	private final Function<T, String> idOf;
+	private final BiConsumer<T, String> assignId;
+
+	BulkInserter(Function<List<T>, Flux<T>> insertAll, Function<T, Mono<T>> insertOne, Function<T, String> idOf,
+			BiConsumer<T, String> assignId) {
+		this.insertAll = insertAll;
+		this.insertOne = insertOne;
+		this.idOf = idOf;
+		this.assignId = assignId;
+	}
+
+	Flux<BulkResult> insert(Flux<T> entities) {
+		// bufferTimeout fails when a batch is due and no more are requested,
+		// so batches queue up while all inserts are in flight
+		return entities	.index()
+						.bufferTimeout(BATCH_SIZE, BATCH_TIMEOUT)
+						.onBackpressureBuffer()
+						.flatMapSequential(batch -> {
+							Set<String> generatedIds = new HashSet<>();
+							for (Tuple2<Long, T> entity : batch) {
+								if (idOf.apply(entity.getT2()) == null) {
+									String id = new ObjectId().toHexString();
+									assignId.accept(entity.getT2(), id);
+									generatedIds.add(id);
+								}
+							}
+							return insertBatch(batch, generatedIds);
+						}, MAX_BATCHES_IN_FLIGHT);
+	}
+
+	private Flux<BulkResult> insertBatch(List<Tuple2<Long, T>> batch, Set<String> generatedIds) {
+		if (batch.isEmpty()) {
+			return Flux.empty();
+		}
+		List<T> entities = new ArrayList<>(batch.size());
+		for (Tuple2<Long, T> entity : batch) {
+			entities.add(entity.getT2());
+		}
+		return insertAll.apply(entities)
+						.thenMany(Flux	.fromIterable(batch)
+										.map(this::created))
+						.onErrorResume(error -> {
+							List<BulkWriteError> writeErrors = writeErrors(error);
+							if (writeErrors.isEmpty()) {
+								return insertOneByOne(batch, generatedIds);
+							}
+							// An ordered insertMany stops at its first error
+							BulkWriteError writeError = writeErrors.get(0);
+							int failed = writeError.getIndex();
+							return Flux	.fromIterable(batch.subList(0, failed))
+										.map(this::created)
+										.concatWith(Mono.just(failed(batch.get(failed), writeError.getMessage())))
+										.concatWith(insertBatch(batch.subList(failed + 1, batch.size()), generatedIds));
+						});
+	}
+
+	private Flux<BulkResult> insertOneByOne(List<Tuple2<Long, T>> batch, Set<String> generatedIds) {
+		return Flux	.fromIterable(batch)
+					.concatMap(entity -> insertOne	.apply(entity.getT2())
+													.map(inserted -> created(entity))
+													.onErrorResume(error -> {
+														// Only this upload could have used a generated id, so the
+														// failed batch must have inserted it already
+														boolean alreadyInserted = error instanceof DuplicateKeyException
+																&& generatedIds.contains(idOf.apply(entity.getT2()));
+														return Mono.just(alreadyInserted ? created(entity)
+																: failed(entity, error.getMessage()));
+													}));
+	}
+
+	private BulkResult created(Tuple2<Long, T> entity) {
+		return BulkResult.created(entity.getT1(), idOf.apply(entity.getT2()));
+	}
+
+	private BulkResult failed(Tuple2<Long, T> entity, String error) {
+		return BulkResult.failed(entity.getT1(), idOf.apply(entity.getT2()), error);
+	}
+
+	// The template translates the driver's bulk write exception, either
+	// keeping it as the cause or copying its errors
+	private static List<BulkWriteError> writeErrors(Throwable error) {
+		for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+			if (cause instanceof MongoBulkWriteException) {
+				return ((MongoBulkWriteException) cause).getWriteErrors();
+			}
+			if (cause instanceof BulkOperationException) {
+				return ((BulkOperationException) cause).getErrors();
+			}
+		}
+		return Collections.emptyList();
+	}
+
+}
@@ -0,0 +1,57 @@
+package io.pivotal.reactive;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one item of a bulk upload; {@code index} is the position of the
+ * item in the upload.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkResult {
+
+	public enum Status {
+		CREATED, FAILED
+	}
+
+	private final long index;
+	private final String id;
+	private final Status status;
+	private final String error;
+
+	private BulkResult(long index, String id, Status status, String error) {
+		this.index = index;
+		this.id = id;
+		this.status = status;
+		this.error = error;
+	}
+
+	public static BulkResult created(long index, String id) {
+		return new BulkResult(index, id, Status.CREATED, null);
+	}
+
+	public static BulkResult failed(long index, String id, String error) {
+		return new BulkResult(index, id, Status.FAILED, error);
+	}
+
+	public long getIndex() {
+		return index;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		return "BulkResult [index=" + index + ", id=" + id + ", status=" + status + ", error=" + error + "]";
+	}
+
+}
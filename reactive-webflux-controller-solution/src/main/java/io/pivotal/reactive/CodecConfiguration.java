@@ -0,0 +1,41 @@
+package io.pivotal.reactive;
+
+import java.util.Collections;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Adds newline delimited JSON (application/x-ndjson), which Spring 5.1 only
+ * knows as application/stream+json, so bulk uploads can use either.
+ */
+@Configuration
+public class CodecConfiguration implements WebFluxConfigurer {
+
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+	public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+	private final ObjectMapper objectMapper;
+
+	public CodecConfiguration(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+		Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper, APPLICATION_NDJSON);
+		// Streaming writes one line per element and flushes it right away
+		encoder.setStreamingMediaTypes(Collections.singletonList(APPLICATION_NDJSON));
+		configurer	.customCodecs()
+					.decoder(new Jackson2JsonDecoder(objectMapper, APPLICATION_NDJSON));
+		configurer	.customCodecs()
+					.encoder(encoder);
+	}
+
+}
@@ -0,0 +1,31 @@
+package io.pivotal.reactive;
+
+import java.time.Instant;
+
+/**
+ * Counter document that every write to the movie collection increments,
+ * used as the validator of listings.
+ */
+public class CollectionVersion {
+
+	private final long version;
+	private final Instant lastModified;
+
+	public CollectionVersion(long version, Instant lastModified) {
+		this.version = version;
+		this.lastModified = lastModified;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public Instant getLastModified() {
+		return lastModified;
+	}
+
+	public String getETag() {
+		return "\"" + version + "\"";
+	}
+
+}
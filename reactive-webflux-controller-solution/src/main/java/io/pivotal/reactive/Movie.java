@@ -1,15 +1,29 @@
 package io.pivotal.reactive;
 
+import java.time.Instant;
+
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Fields left out of a listing with ?fields= are null and not rendered
 @Document
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class Movie {
 	
 	private String title;
 	
 	@Id
 	private String id;
+
+	// Incremented on every save; the strong ETag of the movie
+	@Version
+	private Long version;
+
+	// Set on every save by MovieLastModifiedListener
+	private Instant lastModified;
 	
 	public Movie() {
 		super();
@@ -29,6 +43,14 @@ public class Movie {
 		return id;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public Instant getLastModified() {
+		return lastModified;
+	}
+
 	public void setTitle(String title) {
 		this.title = title;
 	}
@@ -37,8 +59,16 @@ public class Movie {
 		this.id = id;
 	}
 
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	public void setLastModified(Instant lastModified) {
+		this.lastModified = lastModified;
+	}
+
 	@Override
 	public String toString() {
-		return "Movie [title=" + title + ", id=" + id + "]";
+		return "Movie [title=" + title + ", id=" + id + ", version=" + version + "]";
 	}
 }
\ No newline at end of file
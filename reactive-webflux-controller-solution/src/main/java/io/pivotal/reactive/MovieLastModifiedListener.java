@@ -0,0 +1,22 @@
+package io.pivotal.reactive;
+
+import java.time.Instant;
+
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stamps {@link Movie#getLastModified()} on every insert and save; reactive
+ * auditing is not available in this Spring Data version.
+ */
+@Component
+public class MovieLastModifiedListener extends AbstractMongoEventListener<Movie> {
+
+	@Override
+	public void onBeforeConvert(BeforeConvertEvent<Movie> event) {
+		event	.getSource()
+				.setLastModified(Instant.now());
+	}
+
+}
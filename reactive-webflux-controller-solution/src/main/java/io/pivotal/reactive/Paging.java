@@ -0,0 +1,147 @@
+package io.pivotal.reactive;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The {@code limit}, {@code after} and {@code fields} parameters of the
+ * listing endpoints, and the query they are pushed down into.
+ * <p>
+ * Pages are in _id order and {@code after} is the id of the last document of
+ * the previous page, so every page is an index seek on _id. Ids are either
+ * ObjectIds or, when a client chose them, arbitrary strings; MongoDB sorts
+ * all strings before all ObjectIds, and {@link #after(String)} follows the
+ * same order so no document is skipped when a page ends on a string id.
+ * <p>
+ * A listing without a {@code limit} returns everything, as it did before
+ * paging existed. With one, a page has at most {@link #MAX_LIMIT} documents
+ * and a {@code Link: <...>; rel="next"} header when there are more.
+ */
+final class Paging {
+
+	static final int UNLIMITED = 0;
+	static final int MAX_LIMIT = 1000;
+
+	private static final int OBJECT_ID_TYPE = 7;
+
+	private Paging() {
+	}
+
+	/**
+	 * Returns the requested limit capped at {@link #MAX_LIMIT}, or
+	 * {@link #UNLIMITED} when there is none.
+	 */
+	static int limit(Integer requested) {
+		if (requested == null) {
+			return UNLIMITED;
+		}
+		if (requested < 1) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive");
+		}
+		return Math.min(requested, MAX_LIMIT);
+	}
+
+	/**
+	 * Parses a comma separated field list; the id is always included so it
+	 * can be passed as the next {@code after}.
+	 */
+	static Set<String> fields(String requested, Collection<String> allowed, Collection<String> defaults) {
+		Set<String> fields = new LinkedHashSet<>();
+		fields.add("id");
+		if (requested == null) {
+			fields.addAll(defaults);
+			return fields;
+		}
+		for (String field : requested.split(",")) {
+			String name = field.trim();
+			if (!allowed.contains(name)) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown field: " + name);
+			}
+			fields.add(name);
+		}
+		return fields;
+	}
+
+	static Set<String> fieldSet(String... fields) {
+		return new LinkedHashSet<>(Arrays.asList(fields));
+	}
+
+	static Query query(String after, int limit, Collection<String> fields) {
+		// A limit of 0 reads everything
+		Query query = new Query().with(Sort.by("id"))
+								 .limit(limit);
+		if (after != null) {
+			query.addCriteria(after(after));
+		}
+		fields.forEach(field -> query	.fields()
+										.include(field));
+		return query;
+	}
+
+	/**
+	 * Matches the documents that sort after the given id.
+	 */
+	static Criteria after(String id) {
+		if (ObjectId.isValid(id)) {
+			// Stored as an ObjectId, and only ObjectIds sort after one
+			return Criteria	.where("id")
+							.gt(new ObjectId(id));
+		}
+		// $gt only compares within a type, so the ObjectIds that sort after
+		// every string are matched separately
+		return new Criteria().orOperator(Criteria	.where("id")
+													.gt(id),
+				Criteria.where("id")
+						.type(OBJECT_ID_TYPE));
+	}
+
+	/**
+	 * Answers a listing. Without a limit the documents are streamed as they
+	 * are read. With one, a document more than the page holds is read to find
+	 * out whether there is a next page, and if so the page gets a
+	 * {@code Link} header pointing at it.
+	 */
+	static <T> Mono<ResponseEntity<Flux<T>>> respond(ResponseEntity.BodyBuilder response, ServerHttpRequest request,
+			int limit, IntFunction<Flux<T>> find, Function<T, String> idOf) {
+		if (limit == UNLIMITED) {
+			return Mono.just(response.body(find.apply(UNLIMITED)));
+		}
+		return find	.apply(limit + 1)
+					.collectList()
+					.map(documents -> {
+						if (documents.size() <= limit) {
+							return response.body(Flux.fromIterable(documents));
+						}
+						List<T> page = documents.subList(0, limit);
+						String next = UriComponentsBuilder	.fromHttpRequest(request)
+															.replaceQueryParam("after", UriUtils.encodeQueryParam(
+																	idOf.apply(page.get(limit - 1)), StandardCharsets.UTF_8))
+															.build(true)
+															.toUriString();
+						return response	.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+										.body(Flux.fromIterable(page));
+					});
+	}
+
+}
@@ -1,11 +1,15 @@
 package io.pivotal.reactive;
 
+import java.util.Set;
+
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -13,9 +17,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -24,30 +30,64 @@ import reactor.core.publisher.Mono;
 @RequestMapping("/movies")
 public class ReactiveMovieController {
 
+	private static final Set<String> MOVIE_FIELDS = Paging.fieldSet("title", "version", "lastModified");
+	// Listings carry only id and title unless more is asked for
+	private static final Set<String> SUMMARY_FIELDS = Paging.fieldSet("title");
+
 	private final ReactiveMovieRepository reactiveMovieRepository;
+	private final BulkInserter<Movie> bulkInserter;
 
 	@Autowired
 	public ReactiveMovieController(ReactiveMovieRepository reactiveMovieRepository) {
 		this.reactiveMovieRepository = reactiveMovieRepository;
+		this.bulkInserter = new BulkInserter<Movie>(movies -> reactiveMovieRepository.insert(movies),
+		        movie -> reactiveMovieRepository.insert(movie), Movie::getId, Movie::setId);
 	}
 
 	// DONE-reactive-webflux-controller-00: Start "reactive-webflux-controller" app
 
 	// DONE-reactive-webflux-controller-01: Get all movies
 	// - Try curl -i http://localhost:8080/movies
+	// Conditional: the listing is only sent when the collection version
+	// differs from the one in If-None-Match / If-Modified-Since.
+	// The version is read before the listing, so a concurrent write can only
+	// make the ETag older than the body, never hand out a 304 for stale data.
+	// Paged when a limit is given, with a Link header to the next page, see
+	// Paging; unpaged with Accept: application/stream+json each movie is
+	// flushed as soon as it is read
+	// - Try curl -i "http://localhost:8080/movies?limit=2&after=1&fields=title,version"
 	@GetMapping
-	public Flux<Movie> getMovies() {
-		return reactiveMovieRepository.findAll();
+	public Mono<ResponseEntity<Flux<Movie>>> getMovies(@RequestParam(required = false) Integer limit,
+	        @RequestParam(required = false) String after, @RequestParam(required = false) String fields,
+	        ServerHttpRequest request) {
+		int pageLimit = Paging.limit(limit);
+		Set<String> pageFields = Paging.fields(fields, MOVIE_FIELDS, SUMMARY_FIELDS);
+		return reactiveMovieRepository.collectionVersion()
+		                              .flatMap(version -> {
+			                              ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+			                                                                                  .eTag(version.getETag());
+			                              if (version.getLastModified() != null) {
+				                              response.lastModified(version.getLastModified()
+				                                                           .toEpochMilli());
+			                              }
+			                              return Paging.respond(response, request, pageLimit,
+			                                      pageSize -> reactiveMovieRepository.findPage(after, pageSize,
+			                                              pageFields),
+			                                      Movie::getId);
+		                              });
 	}
 
 	// Get a movie option #1
 	// DONE-reactive-webflux-controller-02: Get a movie
 	// - Try curl -i http://localhost:8080/movies/2
 	// - Try curl -i http://localhost:8080/movies/option2/2000 - returns 404
+	// - Try curl -i -H 'If-None-Match: "0"' http://localhost:8080/movies/2 - returns 304
 	@GetMapping("/{id}")
-	public Mono<Movie> getMovie(@PathVariable(value = "id") String movieId) {
+	public Mono<Movie> getMovie(@PathVariable(value = "id") String movieId, ServerWebExchange exchange) {
 		return reactiveMovieRepository.findById(movieId)
-		                              .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)));
+		                              .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
+		                              // Not modified sets the 304 status, the empty body completes it
+		                              .filter(movie -> !checkNotModified(exchange, movie));
 	}
 
 	// Get a movie option #2
@@ -55,8 +95,9 @@ public class ReactiveMovieController {
 	// - Try curl -i http://localhost:8080/movies/option2/2000 - returns 404
 	@GetMapping("/option2/{id}")
 	public Mono<ResponseEntity<Movie>> getMovieById(@PathVariable(value = "id") String movieId) {
+		// The ETag and Last-Modified headers let WebFlux answer 304 itself
 		return reactiveMovieRepository.findById(movieId)
-		                              .map(movie -> ResponseEntity.ok(movie))
+		                              .map(movie -> conditionalOk(movie))
 		                              .defaultIfEmpty(ResponseEntity.notFound()
 		                                                            .build());
 	}
@@ -69,7 +110,7 @@ public class ReactiveMovieController {
 
 		return reactiveMovieRepository.findById(movieId)
 		                              .map(movie -> {
-			                              return new ResponseEntity<Movie>(movie, HttpStatus.OK);
+			                              return conditionalOk(movie);
 		                              })
 		                              .defaultIfEmpty(ResponseEntity.notFound()
 		                                                            .build());
@@ -108,18 +149,25 @@ public class ReactiveMovieController {
 		                              });
 	}
 
+	// Add many movies in one request; results stream back while the upload
+	// is still arriving
+	// - Try printf '{"title":"alien"}\n{"title":"heat"}\n' | curl -i -X POST
+	// -H "Content-Type:application/x-ndjson" --data-binary @-
+	// http://localhost:8080/movies/bulk
+	@PostMapping(value = "/bulk", consumes = { CodecConfiguration.APPLICATION_NDJSON_VALUE,
+	        MediaType.APPLICATION_STREAM_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE }, produces = {
+	                CodecConfiguration.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE })
+	public Flux<BulkResult> addMovies(@RequestBody Flux<Movie> movies) {
+		return bulkInserter.insert(movies);
+	}
+
 	// DONE-reactive-webflux-controller-05: Update a movie
 	// - Try curl -i -X PUT -H "Content-Type:application/json" -d
 	// '{"title":"jaws", "id":"3"}' http://localhost:8080/movies/3
 	@PutMapping("/{id}")
 	public Mono<Movie> updateMovie(@PathVariable(value = "id") String movieId, @Valid @RequestBody Movie movie) {
-		return reactiveMovieRepository.findById(movieId)
-		                              // Here we need to use flatMap because we are calling save(..)
-		                              // method, which returns another Flux object
-		                              .flatMap(existingMovie -> {
-			                              existingMovie.setTitle(movie.getTitle());
-			                              return reactiveMovieRepository.save(existingMovie);
-		                              })
+		// A single findAndModify instead of findById followed by save(..)
+		return reactiveMovieRepository.updateTitle(movieId, movie.getTitle())
 		                              .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)));
 	}
 
@@ -127,11 +175,7 @@ public class ReactiveMovieController {
 	@PutMapping("/option2/{id}")
 	public Mono<ResponseEntity<Movie>> updateMovie2(@PathVariable(value = "id") String movieId,
 	        @Valid @RequestBody Movie movie) {
-		return reactiveMovieRepository.findById(movieId)
-		                              .flatMap(existingMovie -> {
-			                              existingMovie.setTitle(movie.getTitle());
-			                              return reactiveMovieRepository.save(existingMovie);
-		                              })
+		return reactiveMovieRepository.updateTitle(movieId, movie.getTitle())
 		                              .map(updatedMovie -> new ResponseEntity<>(updatedMovie, HttpStatus.OK))
 		                              .defaultIfEmpty(ResponseEntity.notFound()
 		                                                            .build());
@@ -141,11 +185,7 @@ public class ReactiveMovieController {
 	public Mono<ResponseEntity<Movie>> updateMovie3(@PathVariable(value = "id") String movieId,
 	        @Valid @RequestBody Movie movie) {
 
-		return reactiveMovieRepository.findById(movieId)
-		                              .flatMap(existingMovie -> {
-			                              existingMovie.setTitle(movie.getTitle());
-			                              return reactiveMovieRepository.save(existingMovie);
-		                              })
+		return reactiveMovieRepository.updateTitle(movieId, movie.getTitle())
 		                              .map(ResponseEntity::ok)
 		                              .defaultIfEmpty(ResponseEntity.notFound()
 		                                                            .build());
@@ -156,6 +196,27 @@ public class ReactiveMovieController {
 		return reactiveMovieRepository.deleteById(id);
 	}
 
+	private static String eTag(Movie movie) {
+		return "\"" + movie.getVersion() + "\"";
+	}
+
+	private static boolean checkNotModified(ServerWebExchange exchange, Movie movie) {
+		if (movie.getLastModified() == null) {
+			return exchange.checkNotModified(eTag(movie));
+		}
+		return exchange.checkNotModified(eTag(movie), movie.getLastModified());
+	}
+
+	private static ResponseEntity<Movie> conditionalOk(Movie movie) {
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+		                                                    .eTag(eTag(movie));
+		if (movie.getLastModified() != null) {
+			response.lastModified(movie.getLastModified()
+			                           .toEpochMilli());
+		}
+		return response.body(movie);
+	}
+
 }
 
 // DONE-reactive-webflux-controller-10: Do the following
@@ -2,5 +2,6 @@ package io.pivotal.reactive;
 
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 
-public interface ReactiveMovieRepository extends ReactiveMongoRepository<Movie, String> {
+public interface ReactiveMovieRepository extends ReactiveMongoRepository<Movie, String>, ReactiveMovieRepositoryCustom {
+
 }
@@ -0,0 +1,53 @@
+package io.pivotal.reactive;
+
+import java.util.Collection;
+
+import org.reactivestreams.Publisher;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Operations of {@link ReactiveMovieRepository} that cannot be derived from
+ * method names, implemented in {@link ReactiveMovieRepositoryCustomImpl}.
+ * <p>
+ * The inserts, saves and deletes declared here replace the ones of
+ * {@link org.springframework.data.mongodb.repository.ReactiveMongoRepository}
+ * so that each write also bumps the {@link CollectionVersion}; writes
+ * through other methods leave it unchanged.
+ */
+public interface ReactiveMovieRepositoryCustom {
+
+	/**
+	 * Reads the version of the movie collection from its counter document.
+	 */
+	Mono<CollectionVersion> collectionVersion();
+
+	/**
+	 * Streams up to {@code limit} movies with an id greater than
+	 * {@code after}, in id order, reading only the given fields. A limit of
+	 * {@link Paging#UNLIMITED} streams them all.
+	 */
+	Flux<Movie> findPage(String after, int limit, Collection<String> fields);
+
+	/**
+	 * Sets the title, bumps the version and lastModified in a single
+	 * findAndModify and emits the updated movie, or nothing if there is no
+	 * movie with that id.
+	 */
+	Mono<Movie> updateTitle(String id, String title);
+
+	<S extends Movie> Mono<S> insert(S movie);
+
+	<S extends Movie> Flux<S> insert(Iterable<S> movies);
+
+	<S extends Movie> Mono<S> save(S movie);
+
+	<S extends Movie> Flux<S> saveAll(Iterable<S> movies);
+
+	<S extends Movie> Flux<S> saveAll(Publisher<S> movies);
+
+	Mono<Void> deleteById(String id);
+
+	Mono<Void> deleteAll();
+}
@@ -0,0 +1,113 @@
+package io.pivotal.reactive;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.reactivestreams.Publisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class ReactiveMovieRepositoryCustomImpl implements ReactiveMovieRepositoryCustom {
+
+	static final String VERSION_COLLECTION = "movieCollectionVersion";
+	static final String VERSION_ID = "movies";
+
+	private final ReactiveMongoOperations operations;
+
+	ReactiveMovieRepositoryCustomImpl(ReactiveMongoOperations operations) {
+		this.operations = operations;
+	}
+
+	@Override
+	public Mono<CollectionVersion> collectionVersion() {
+		return operations	.findById(VERSION_ID, CollectionVersion.class, VERSION_COLLECTION)
+							.defaultIfEmpty(new CollectionVersion(0, null));
+	}
+
+	@Override
+	public Flux<Movie> findPage(String after, int limit, Collection<String> fields) {
+		return operations.find(Paging.query(after, limit, fields), Movie.class);
+	}
+
+	@Override
+	public Mono<Movie> updateTitle(String id, String title) {
+		// Bypasses the save path, so version and lastModified are maintained here
+		return touching(operations.findAndModify(Query.query(Criteria.where("id")
+																		.is(id)),
+				new Update().set("title", title)
+							.inc("version", 1)
+							.currentDate("lastModified"),
+				FindAndModifyOptions.options()
+									.returnNew(true),
+				Movie.class)).singleOrEmpty();
+	}
+
+	@Override
+	public <S extends Movie> Mono<S> insert(S movie) {
+		return touching(operations.insert(movie)).singleOrEmpty();
+	}
+
+	@Override
+	public <S extends Movie> Flux<S> insert(Iterable<S> movies) {
+		List<S> batch = new ArrayList<>();
+		movies.forEach(batch::add);
+		return touching(operations.insertAll(batch));
+	}
+
+	@Override
+	public <S extends Movie> Mono<S> save(S movie) {
+		return touching(operations.save(movie)).singleOrEmpty();
+	}
+
+	@Override
+	public <S extends Movie> Flux<S> saveAll(Iterable<S> movies) {
+		return saveAll(Flux.fromIterable(movies));
+	}
+
+	@Override
+	public <S extends Movie> Flux<S> saveAll(Publisher<S> movies) {
+		return touching(Flux	.from(movies)
+								.concatMap(movie -> operations.save(movie)));
+	}
+
+	@Override
+	public Mono<Void> deleteById(String id) {
+		return touching(operations.remove(Query.query(Criteria.where("id")
+																.is(id)),
+				Movie.class)).then();
+	}
+
+	@Override
+	public Mono<Void> deleteAll() {
+		return touching(operations.remove(new Query(), Movie.class)).then();
+	}
+
+	// The version is bumped after the write has finished, failed part way
+	// included, so a listing read after the version can never be older than
+	// its ETag
+	private <S> Flux<S> touching(Publisher<S> write) {
+		return Flux	.from(write)
+					.onErrorResume(error -> bumpVersion().then(Mono.error(error)))
+					.concatWith(bumpVersion().then(Mono.empty()));
+	}
+
+	private Mono<Void> bumpVersion() {
+		return operations	.upsert(Query.query(Criteria.where("_id")
+														.is(VERSION_ID)),
+									new Update().inc("version", 1)
+												.currentDate("lastModified"),
+									VERSION_COLLECTION)
+							// Two first writes can race to insert the counter
+							.retry(1, DuplicateKeyException.class::isInstance)
+							.then();
+	}
+
+}
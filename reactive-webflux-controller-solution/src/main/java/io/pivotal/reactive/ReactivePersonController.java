@@ -1,8 +1,12 @@
 package io.pivotal.reactive;
 
+import java.util.Set;
+
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -10,6 +14,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -20,16 +25,29 @@ import reactor.core.publisher.Mono;
 @RequestMapping("/people")
 public class ReactivePersonController {
 
+	private static final Set<String> PERSON_FIELDS = Paging.fieldSet("firstname", "lastname", "age");
+
 	private ReactivePersonRepository repository;
+	private BulkInserter<Person> bulkInserter;
 
 	public ReactivePersonController(ReactivePersonRepository repository) {
 		super();
 		this.repository = repository;
+		this.bulkInserter = new BulkInserter<Person>(people -> repository.insert(people),
+				person -> repository.insert(person),
+				Person::getId, Person::setId);
 	}
 
+	// Paged when a limit is given, with a Link header to the next page, see
+	// Paging; unpaged with Accept: application/stream+json each person is
+	// flushed as soon as it is read
 	@GetMapping
-	Flux<Person> getPeople() {
-		return repository.findAll();
+	Mono<ResponseEntity<Flux<Person>>> getPeople(@RequestParam(required = false) Integer limit,
+			@RequestParam(required = false) String after, @RequestParam(required = false) String fields,
+			ServerHttpRequest request) {
+		Set<String> pageFields = Paging.fields(fields, PERSON_FIELDS, PERSON_FIELDS);
+		return Paging.respond(ResponseEntity.ok(), request, Paging.limit(limit),
+				pageSize -> repository.findPage(after, pageSize, pageFields), Person::getId);
 	}
 
 	@GetMapping("/{id}")
@@ -67,15 +85,16 @@ public class ReactivePersonController {
 							});
 	}
 
+	@PostMapping(value = "/bulk", consumes = { CodecConfiguration.APPLICATION_NDJSON_VALUE,
+			MediaType.APPLICATION_STREAM_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE }, produces = {
+					CodecConfiguration.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE })
+	Flux<BulkResult> addPeople(@RequestBody Flux<Person> people) {
+		return bulkInserter.insert(people);
+	}
+
 	@PutMapping("/{id}")
 	Mono<Person> updatePerson(@PathVariable("id") String personId, @RequestBody Person newPerson) {
-		return repository	.findById(personId)
-							.flatMap(existingPerson -> {
-								existingPerson.setAge(newPerson.getAge());
-								existingPerson.setFirstname(newPerson.getFirstname());
-								existingPerson.setLastname(newPerson.getLastname());
-								return repository.save(existingPerson);
-							})
+		return repository	.updatePerson(personId, newPerson)
 							.switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)));
 	}
 
@@ -2,6 +2,6 @@ package io.pivotal.reactive;
 
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 
-public interface ReactivePersonRepository extends ReactiveMongoRepository<Person, String>{
+public interface ReactivePersonRepository extends ReactiveMongoRepository<Person, String>, ReactivePersonRepositoryCustom {
 
 }
@@ -0,0 +1,27 @@
+package io.pivotal.reactive;
+
+import java.util.Collection;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Operations of {@link ReactivePersonRepository} that cannot be derived from
+ * method names, implemented in {@link ReactivePersonRepositoryCustomImpl}.
+ */
+public interface ReactivePersonRepositoryCustom {
+
+	/**
+	 * Streams up to {@code limit} people with an id greater than
+	 * {@code after}, in id order, reading only the given fields. A limit of
+	 * {@link Paging#UNLIMITED} streams them all.
+	 */
+	Flux<Person> findPage(String after, int limit, Collection<String> fields);
+
+	/**
+	 * Replaces every field but the id with the ones of {@code replacement} in
+	 * a single findAndModify and emits the updated person, or nothing if
+	 * there is no person with that id.
+	 */
+	Mono<Person> updatePerson(String id, Person replacement);
+}
@@ -0,0 +1,41 @@
+package io.pivotal.reactive;
+
+import java.util.Collection;
+
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class ReactivePersonRepositoryCustomImpl implements ReactivePersonRepositoryCustom {
+
+	private final ReactiveMongoOperations operations;
+
+	ReactivePersonRepositoryCustomImpl(ReactiveMongoOperations operations) {
+		this.operations = operations;
+	}
+
+	@Override
+	public Flux<Person> findPage(String after, int limit, Collection<String> fields) {
+		return operations.find(Paging.query(after, limit, fields), Person.class);
+	}
+
+	@Override
+	public Mono<Person> updatePerson(String id, Person replacement) {
+		Query byId = Query.query(Criteria	.where("id")
+											.is(id));
+		// Every field is set, so fields missing from the request are cleared
+		// just as the read-and-save this replaced did
+		Update update = new Update().set("firstname", replacement.getFirstname())
+									.set("lastname", replacement.getLastname())
+									.set("age", replacement.getAge());
+		return operations.findAndModify(byId, update, FindAndModifyOptions	.options()
+																			.returnNew(true),
+				Person.class);
+	}
+
+}
@@ -0,0 +1,35 @@
+package io.pivotal.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@RunWith(JUnitPlatform.class)
+public class BulkInserterTests {
+
+	private final BulkInserter<Movie> bulkInserter = new BulkInserter<Movie>(movies -> Flux.fromIterable(movies),
+			movie -> Mono.just(movie), Movie::getId, Movie::setId);
+
+	@Test
+	public void partialBatchIsInsertedWhileTheUploadIsStillOpen() {
+
+		Flux<Movie> upload = Flux	.just(new Movie("alien", "1"), new Movie("heat", null))
+									.concatWith(Flux.never());
+
+		StepVerifier.create(bulkInserter.insert(upload))
+					.assertNext(result -> assertThat(result.getId()).isEqualTo("1"))
+					.assertNext(result -> assertThat(result.getStatus()).isEqualTo(BulkResult.Status.CREATED))
+					.expectNoEvent(BulkInserter.BATCH_TIMEOUT.multipliedBy(2))
+					.thenCancel()
+					.verify(Duration.ofSeconds(5));
+	}
+
+}
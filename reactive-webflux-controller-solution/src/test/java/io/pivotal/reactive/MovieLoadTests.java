@@ -0,0 +1,126 @@
+package io.pivotal.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Compares {@code GET /movies} on the default server with the {@code tuned}
+ * profile: bytes on the wire per response and p99 latency under concurrent
+ * load. Needs a local MongoDB, run with {@code mvn test -Pload-tests}.
+ * <p>
+ * Compression costs CPU, so the tuned p99 may be higher by at most
+ * {@code -Dload.tolerance}, a fraction of the default p99.
+ */
+@RunWith(JUnitPlatform.class)
+public class MovieLoadTests {
+
+	private static final int MOVIES = 1000;
+	private static final int WARMUP_REQUESTS = 200;
+	private static final int REQUESTS = 2000;
+	private static final int CONCURRENCY = 16;
+	private static final double TOLERANCE = Double.parseDouble(System.getProperty("load.tolerance", "0.25"));
+
+	@Test
+	void compareDefaultAndTunedServer() {
+
+		Result standard = measure("default");
+		Result tuned = measure("tuned");
+
+		System.out.format("%-8s %8s %10s %10s%n", "profile", "bytes", "p50", "p99");
+		System.out.format("%-8s %8d %8.2fms %8.2fms%n", "default", standard.bytesPerResponse, standard.p50Millis,
+				standard.p99Millis);
+		System.out.format("%-8s %8d %8.2fms %8.2fms%n", "tuned", tuned.bytesPerResponse, tuned.p50Millis,
+				tuned.p99Millis);
+		assertThat(tuned.bytesPerResponse).isLessThan(standard.bytesPerResponse);
+		assertThat(tuned.p99Millis).isLessThanOrEqualTo(standard.p99Millis * (1 + TOLERANCE));
+	}
+
+	private Result measure(String profile) {
+		Instant startedAt = Instant.now();
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MainApplication.class)
+				.profiles(profile)
+				.properties("server.port=0")
+				.run()) {
+			seed(context.getBean(ReactiveMovieRepository.class), startedAt);
+			WebClient client = WebClient.create("http://localhost:" + context	.getEnvironment()
+																				.getProperty("local.server.port"));
+
+			Flux.range(0, WARMUP_REQUESTS)
+				.flatMap(i -> getMovies(client, new AtomicLong()), CONCURRENCY)
+				.blockLast();
+
+			AtomicLong bytes = new AtomicLong();
+			long[] latencies = new long[REQUESTS];
+			Flux.range(0, REQUESTS)
+				.flatMap(i -> Mono.defer(() -> {
+					long start = System.nanoTime();
+					return getMovies(client, bytes).doOnSuccess(done -> latencies[i] = System.nanoTime() - start);
+				}), CONCURRENCY)
+				.blockLast();
+
+			Arrays.sort(latencies);
+			return new Result(bytes.get() / REQUESTS, latencies[REQUESTS / 2] / 1_000_000.0,
+					latencies[REQUESTS * 99 / 100] / 1_000_000.0);
+		}
+	}
+
+	// InitData replaces the movies on startup, so wait until it has saved its
+	// last movie before adding ours
+	private void seed(ReactiveMovieRepository repository, Instant startedAt) {
+		repository	.findById("4")
+					.filter(movie -> movie.getLastModified() != null && movie	.getLastModified()
+																				.isAfter(startedAt))
+					.repeatWhenEmpty(repeats -> repeats.delayElements(Duration.ofMillis(100)))
+					.thenMany(repository.saveAll(Flux	.range(0, MOVIES)
+														.map(i -> new Movie("load test movie number " + i, "load-" + i))))
+					.blockLast(Duration.ofSeconds(30));
+	}
+
+	// The client does not decompress, so the counted bytes are the ones sent
+	private Mono<Void> getMovies(WebClient client, AtomicLong bytes) {
+		return client	.get()
+						.uri("/movies?limit={limit}", MOVIES)
+						.accept(MediaType.APPLICATION_JSON)
+						.header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
+						.retrieve()
+						.bodyToFlux(DataBuffer.class)
+						.doOnNext(buffer -> {
+							bytes.addAndGet(buffer.readableByteCount());
+							DataBufferUtils.release(buffer);
+						})
+						.then();
+	}
+
+	private static class Result {
+
+		final long bytesPerResponse;
+		final double p50Millis;
+		final double p99Millis;
+
+		Result(long bytesPerResponse, double p50Millis, double p99Millis) {
+			this.bytesPerResponse = bytesPerResponse;
+			this.p50Millis = p50Millis;
+			this.p99Millis = p99Millis;
+		}
+
+	}
+
+}
@@ -1,6 +1,9 @@
 package io.pivotal.reactive;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -10,10 +13,12 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RunWith(JUnitPlatform.class)
@@ -57,6 +62,52 @@ public class ReactiveMovieControllerTests {
 						.expectBodyList(Movie.class);
 	}
 
+	@Test
+	public void testGetMoviesPage() {
+
+		webTestClient	.get()
+						.uri("/movies?limit=2&fields=title")
+						.accept(MediaType.APPLICATION_JSON_UTF8)
+						.exchange()
+						.expectStatus()
+						.isOk()
+						.expectHeader()
+						.valueMatches(HttpHeaders.LINK, "<.*[?&]after=2(&.*)?>; rel=\"next\"")
+						.expectBody()
+						.jsonPath("$.length()")
+						.isEqualTo(2)
+						.jsonPath("$[0].id")
+						.exists()
+						.jsonPath("$[0].version")
+						.doesNotExist();
+
+		List<Movie> page = webTestClient.get()
+										.uri("/movies?limit=2&after=2&fields=title,version")
+										.accept(MediaType.APPLICATION_STREAM_JSON)
+										.exchange()
+										.expectStatus()
+										.isOk()
+										.returnResult(Movie.class)
+										.getResponseBody()
+										.collectList()
+										.block();
+		// Ids after the seeded strings are ObjectIds, which MongoDB sorts last
+		assertThat(page).extracting(Movie::getId)
+						.isNotEmpty()
+						.doesNotContain("1", "2");
+		assertThat(page).extracting(Movie::getVersion)
+						.doesNotContainNull();
+	}
+
+	@Test
+	public void testGetMoviesWithUnknownFieldReturns400() {
+		webTestClient	.get()
+						.uri("/movies?fields=budget")
+						.exchange()
+						.expectStatus()
+						.isBadRequest();
+	}
+
 	@Test
 	public void testCreateMovie() {
 
@@ -76,6 +127,31 @@ public class ReactiveMovieControllerTests {
 						.isEqualTo("This is a Test Movie");
 	}
 
+	@Test
+	public void testBulkCreateMovies() {
+
+		Flux<Movie> movies = Flux.just(new Movie("bulk one", null), new Movie("duplicate id", "4"),
+				new Movie("bulk two", null));
+
+		List<String> results = webTestClient.post()
+											.uri("/movies/bulk")
+											.contentType(MediaType.APPLICATION_STREAM_JSON)
+											.accept(MediaType.APPLICATION_STREAM_JSON)
+											.body(movies, Movie.class)
+											.exchange()
+											.expectStatus()
+											.isOk()
+											.returnResult(String.class)
+											.getResponseBody()
+											.collectList()
+											.block();
+
+		assertThat(results).hasSize(3);
+		assertThat(results.get(0)).contains("\"index\":0", "CREATED");
+		assertThat(results.get(1)).contains("\"index\":1", "\"id\":\"4\"", "FAILED");
+		assertThat(results.get(2)).contains("\"index\":2", "CREATED");
+	}
+
 	@Test
 	public void testGetSingleMovie() {
 
@@ -91,6 +167,78 @@ public class ReactiveMovieControllerTests {
 						.isEqualTo("justice league");
 	}
 
+	@Test
+	public void testGetUnchangedMovieReturns304() {
+
+		String eTag = webTestClient	.get()
+									.uri("/movies/3")
+									.exchange()
+									.expectStatus()
+									.isOk()
+									.expectHeader()
+									.valueMatches(HttpHeaders.ETAG, "\"\\d+\"")
+									.returnResult(Movie.class)
+									.getResponseHeaders()
+									.getETag();
+
+		for (String uri : new String[] { "/movies/3", "/movies/option2/3", "/movies/option3/3" }) {
+			webTestClient	.get()
+							.uri(uri)
+							.ifNoneMatch(eTag)
+							.exchange()
+							.expectStatus()
+							.isNotModified();
+		}
+	}
+
+	@Test
+	public void testGetUnchangedMoviesReturns304() {
+
+		String eTag = webTestClient	.get()
+									.uri("/movies")
+									.exchange()
+									.expectStatus()
+									.isOk()
+									.returnResult(Movie.class)
+									.getResponseHeaders()
+									.getETag();
+
+		webTestClient	.get()
+						.uri("/movies")
+						.ifNoneMatch(eTag)
+						.exchange()
+						.expectStatus()
+						.isNotModified();
+	}
+
+	@Test
+	public void testGetMoviesAfterAWriteReturns200() {
+
+		String eTag = webTestClient	.get()
+									.uri("/movies")
+									.exchange()
+									.expectStatus()
+									.isOk()
+									.returnResult(Movie.class)
+									.getResponseHeaders()
+									.getETag();
+
+		webTestClient	.delete()
+						.uri("/movies/999")
+						.exchange()
+						.expectStatus()
+						.isOk();
+
+		webTestClient	.get()
+						.uri("/movies")
+						.ifNoneMatch(eTag)
+						.exchange()
+						.expectStatus()
+						.isOk()
+						.expectHeader()
+						.valueMatches(HttpHeaders.ETAG, "\"\\d+\"");
+	}
+
 	@Test
 	public void testGetNonExistingMovieReturns404() {
 		webTestClient	.get()
@@ -117,7 +265,21 @@ public class ReactiveMovieControllerTests {
 						.contentType(MediaType.APPLICATION_JSON_UTF8)
 						.expectBody()
 						.jsonPath("$.title")
-						.isEqualTo("Updated Movie");
+						.isEqualTo("Updated Movie")
+						.jsonPath("$.lastModified")
+						.exists();
+	}
+
+	@Test
+	public void testUpdateNonExistingMovieReturns404() {
+
+		webTestClient	.put()
+						.uri("/movies/999")
+						.contentType(MediaType.APPLICATION_JSON_UTF8)
+						.body(Mono.just(new Movie("Missing Movie", "999")), Movie.class)
+						.exchange()
+						.expectStatus()
+						.isNotFound();
 	}
 
 	@Test
@@ -120,6 +120,26 @@ public class ReactivePersonControllerTests {
 						.isEqualTo("jones");
 	}
 
+	@Test
+	public void testUpdatePersonReplacesEveryField() {
+
+		webTestClient	.put()
+						.uri("/people/{id}", Collections.singletonMap("id", 3))
+						.contentType(MediaType.APPLICATION_JSON_UTF8)
+						.accept(MediaType.APPLICATION_JSON_UTF8)
+						.syncBody("{\"firstname\":\"lee\"}")
+						.exchange()
+						.expectStatus()
+						.isOk()
+						.expectBody()
+						.jsonPath("$.firstname")
+						.isEqualTo("lee")
+						.jsonPath("$.lastname")
+						.isEmpty()
+						.jsonPath("$.age")
+						.isEqualTo(0);
+	}
+
 	@Test
 	public void testDeletePerson() {
 		webTestClient	.delete()
@@ -6,6 +6,8 @@ import java.util.stream.Stream;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
 
 @Configuration
 public class InitData {
@@ -13,10 +15,17 @@ public class InitData {
 	AtomicInteger movieIdCounter = new AtomicInteger(1);
 
 	@Bean
-	CommandLineRunner createTestData(ReactiveMovieRepository movieRepository) {
+	CommandLineRunner createTestData(ReactiveMovieRepository movieRepository, ReactiveMongoOperations operations) {
 		return args -> {
-			movieRepository	.deleteAll()
-							.subscribe(null, null, () -> {
+			// Tailable cursors (see MovieTailService) need a capped collection,
+			// and documents cannot be deleted from one, so it is recreated
+			operations	.dropCollection(Movie.class)
+						.then(operations.createCollection(Movie.class, CollectionOptions	.empty()
+																							.capped()
+																							.size(1024 * 1024)
+																							.maxDocuments(1000)))
+						.then()
+						.subscribe(null, null, () -> {
 								Stream	.of("thor", "avengers", "iron man", "justice league")
 										.forEach(title -> {
 											movieRepository	.save(new Movie(title, new Integer(movieIdCounter.getAndIncrement()).toString()))
@@ -2,7 +2,19 @@ package io.pivotal.reactive;
 
 import java.util.Date;
 
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Stored in a capped collection by MovieEventLog; events that were only
+// streamed and never logged have no id
+@Document
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class MovieEvent {
+
+	@Id
+	private String id;
 	
 	private Movie movie;
 	private Date date;
@@ -21,6 +33,14 @@ public class MovieEvent {
 		return "MovieEvent [movie=" + movie.getTitle() + ", date=" + date + "]";
 	}
 
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
 	public Movie getMovie() {
 		return movie;
 	}
@@ -0,0 +1,173 @@
+package io.pivotal.reactive;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PreDestroy;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+/**
+ * Persists {@link MovieEvent}s to a capped collection and tails them back.
+ * <p>
+ * {@link #append(MovieEvent)} never waits for the database: events are
+ * collected into batches of up to {@code movies.events.batch-size} events or
+ * {@code movies.events.batch-timeout-millis}, whichever comes first, and each
+ * batch is written with a single insertMany. Batches are written one at a
+ * time so event ids grow in insertion order, which is what lets readers
+ * resume by id. When the database falls behind, at most
+ * {@link #MAX_PENDING_BATCHES} batches are kept and the oldest are dropped.
+ * <p>
+ * The capped collection is created on first use with
+ * {@code movies.events.capped-size} bytes and at most
+ * {@code movies.events.capped-max-documents} events. Bind it to a
+ * MeterRegistry to publish the number of dropped events.
+ */
+@Component
+public class MovieEventLog implements MeterBinder {
+
+	static final int MAX_PENDING_BATCHES = 64;
+	static final Duration RESUME_DELAY = Duration.ofSeconds(1);
+	// Smaller than any ObjectId, so a reader without a position starts at the oldest event
+	private static final String BEFORE_FIRST_EVENT = "000000000000000000000000";
+
+	private static final Logger logger = LoggerFactory.getLogger(MovieEventLog.class);
+
+	private final ReactiveMongoOperations operations;
+	private final MovieEventRepository repository;
+	private final CollectionOptions collectionOptions;
+	private final AtomicLong droppedEvents = new AtomicLong();
+	private final FluxSink<MovieEvent> sink;
+	private final MonoProcessor<Void> written;
+	private volatile boolean collectionReady;
+
+	public MovieEventLog(ReactiveMongoOperations operations, MovieEventRepository repository,
+			@Value("${movies.events.capped-size:16777216}") long cappedSize,
+			@Value("${movies.events.capped-max-documents:100000}") long cappedMaxDocuments,
+			@Value("${movies.events.batch-size:1000}") int batchSize,
+			@Value("${movies.events.batch-timeout-millis:50}") long batchTimeoutMillis) {
+		this.operations = operations;
+		this.repository = repository;
+		this.collectionOptions = CollectionOptions	.empty()
+													.capped()
+													.size(cappedSize)
+													.maxDocuments(cappedMaxDocuments);
+
+		DirectProcessor<MovieEvent> events = DirectProcessor.create();
+		this.sink = events.sink();
+		this.written = events	.bufferTimeout(batchSize, Duration.ofMillis(batchTimeoutMillis))
+								.onBackpressureBuffer(MAX_PENDING_BATCHES,
+										batch -> droppedEvents.addAndGet(batch.size()),
+										BufferOverflowStrategy.DROP_OLDEST)
+								.concatMap(this::insert, 1)
+								.then()
+								.toProcessor();
+	}
+
+	/**
+	 * Assigns the event its id and queues it for the next batch.
+	 * <p>
+	 * The id is set here rather than by the insert, since the caller may be
+	 * streaming the same instance to clients and the SSE event id must not
+	 * change under them. Ids are taken in the order the events are queued, so
+	 * they grow in log order and resuming after one never skips an event.
+	 */
+	public void append(MovieEvent event) {
+		synchronized (sink) {
+			event.setId(new ObjectId().toHexString());
+			sink.next(event);
+		}
+	}
+
+	/**
+	 * Tails the logged events of a movie, or of all movies when
+	 * {@code movieId} is {@code null}, starting after the event with the given
+	 * id or at the oldest event still in the collection.
+	 */
+	public Flux<MovieEvent> tail(String movieId, String afterEventId) {
+		return Flux.defer(() -> {
+			AtomicReference<String> lastId = new AtomicReference<>(
+					afterEventId != null ? afterEventId : BEFORE_FIRST_EVENT);
+			return Flux	.defer(() -> ensureCollection().thenMany(movieId != null
+							? repository.findByMovieIdAndIdGreaterThan(movieId, lastId.get())
+							: repository.findByIdGreaterThan(lastId.get())))
+						.doOnNext(event -> lastId.set(event.getId()))
+						// A tailable cursor on an empty collection completes right away
+						.repeatWhen(completions -> completions.delayElements(RESUME_DELAY))
+						.retryWhen(errors -> errors.delayElements(RESUME_DELAY));
+		});
+	}
+
+	/**
+	 * Number of events lost because the database could not keep up or a
+	 * batch failed.
+	 */
+	public long getDroppedEvents() {
+		return droppedEvents.get();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter	.builder("movies.events.dropped", droppedEvents, AtomicLong::get)
+						.description("Movie events that were not logged")
+						.register(registry);
+	}
+
+	/**
+	 * Writes the events that are still queued.
+	 */
+	@PreDestroy
+	public void close() {
+		sink.complete();
+		written.block(Duration.ofSeconds(10));
+	}
+
+	private Mono<Void> insert(List<MovieEvent> batch) {
+		return ensureCollection()	.thenMany(operations.insertAll(batch))
+									.then()
+									.onErrorResume(e -> {
+										droppedEvents.addAndGet(batch.size());
+										logger.warn("Could not log {} movie events", batch.size(), e);
+										return Mono.empty();
+									});
+	}
+
+	private Mono<Void> ensureCollection() {
+		if (collectionReady) {
+			return Mono.empty();
+		}
+		return operations	.collectionExists(MovieEvent.class)
+							.flatMap(exists -> exists ? Mono.<Void>empty() : createCollection())
+							.doOnSuccess(done -> collectionReady = true);
+	}
+
+	// The first insert and the first tail may both find no collection and
+	// both create it; the one that loses the race sees it exists after all
+	private Mono<Void> createCollection() {
+		return operations	.createCollection(MovieEvent.class, collectionOptions)
+							.then()
+							.onErrorResume(e -> operations	.collectionExists(MovieEvent.class)
+															.flatMap(exists -> exists ? Mono.<Void>empty()
+																	: Mono.error(e)));
+	}
+
+}
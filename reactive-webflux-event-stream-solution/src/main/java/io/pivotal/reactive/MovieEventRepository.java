@@ -0,0 +1,19 @@
+package io.pivotal.reactive;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.data.mongodb.repository.Tailable;
+
+import reactor.core.publisher.Flux;
+
+public interface MovieEventRepository extends ReactiveMongoRepository<MovieEvent, String> {
+
+	/*
+	 * Tailable cursors on the capped movieEvent collection, see MovieEventLog.
+	 * The id bound lets a reader resume after the last event it received.
+	 */
+	@Tailable
+	Flux<MovieEvent> findByIdGreaterThan(String id);
+
+	@Tailable
+	Flux<MovieEvent> findByMovieIdAndIdGreaterThan(String movieId, String id);
+}
@@ -0,0 +1,82 @@
+package io.pivotal.reactive;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Shares one tailable cursor on the capped movie collection between all
+ * subscribers.
+ * <p>
+ * The cursor is opened by the first subscriber and closed when the last one
+ * leaves. The id of the last movie seen is remembered, so when the cursor is
+ * reopened (after all subscribers left, the cursor died or failed) it resumes
+ * after that movie instead of replaying the whole capped collection. Late
+ * subscribers get the last {@link #REPLAY_SIZE} movies replayed.
+ * <p>
+ * Only the collection's natural order is insertion order: ids may be strings
+ * of any shape or ObjectIds made by different clients, so no id range
+ * matches "inserted after". Resuming therefore reads the capped collection
+ * in natural order again and skips up to and including the last movie seen.
+ * If that movie has already been pushed out of the collection, every movie
+ * still in it is newer.
+ */
+@Service
+public class MovieTailService {
+
+	static final int REPLAY_SIZE = 100;
+	static final Duration RESUME_DELAY = Duration.ofSeconds(1);
+
+	private final ReactiveMongoOperations operations;
+	private final AtomicReference<String> lastSeenId = new AtomicReference<>();
+	private final Flux<Movie> sharedTail;
+
+	public MovieTailService(ReactiveMongoOperations operations) {
+		this.operations = operations;
+		this.sharedTail = resumingTail(lastSeenId)	.replay(REPLAY_SIZE)
+													.refCount();
+	}
+
+	/**
+	 * Streams new movies. With the id of the last movie a client received
+	 * (e.g. from the SSE Last-Event-ID header), the client gets its own cursor
+	 * that resumes after that movie, however long ago it was inserted.
+	 */
+	public Flux<Movie> tail(String lastId) {
+		if (lastId == null) {
+			return sharedTail;
+		}
+		return Flux.defer(() -> resumingTail(new AtomicReference<>(lastId)));
+	}
+
+	private Flux<Movie> resumingTail(AtomicReference<String> lastSeen) {
+		return Flux	.defer(() -> tailAfter(lastSeen.get()))
+					.doOnNext(movie -> lastSeen.set(movie.getId()))
+					// A tailable cursor on an empty collection completes right away
+					.repeatWhen(completions -> completions.delayElements(RESUME_DELAY))
+					.retryWhen(errors -> errors.delayElements(RESUME_DELAY));
+	}
+
+	private Flux<Movie> tailAfter(String lastId) {
+		if (lastId == null) {
+			return operations.tail(new Query(), Movie.class);
+		}
+		return operations	.exists(Query.query(Criteria.where("id")
+														.is(lastId)),
+									Movie.class)
+							.flatMapMany(stillThere -> {
+								// Tailable cursors always read in natural order
+								Flux<Movie> all = operations.tail(new Query(), Movie.class);
+								return stillThere ? all	.skipUntil(movie -> lastId.equals(movie.getId()))
+														.skip(1)
+										: all;
+							});
+	}
+
+}
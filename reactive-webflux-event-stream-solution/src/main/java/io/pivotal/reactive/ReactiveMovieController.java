@@ -7,8 +7,10 @@ import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -22,10 +24,15 @@ public class ReactiveMovieController {
 
 	private static final int TEN = 10;
 	private final ReactiveMovieRepository reactiveMovieRepository;
+	private final MovieTailService movieTailService;
+	private final MovieEventLog movieEventLog;
 
 	@Autowired
-	public ReactiveMovieController(ReactiveMovieRepository reactiveMovieRepository) {
+	public ReactiveMovieController(ReactiveMovieRepository reactiveMovieRepository,
+			MovieTailService movieTailService, MovieEventLog movieEventLog) {
 		this.reactiveMovieRepository = reactiveMovieRepository;
+		this.movieTailService = movieTailService;
+		this.movieEventLog = movieEventLog;
 	}
 
 	// DONE-reactive-webflux-event-stream-00: 
@@ -96,10 +103,23 @@ public class ReactiveMovieController {
 										.take(TEN);
 			Flux<MovieEvent> movieEvents = Flux.fromStream(Stream.generate(() -> new MovieEvent(movie, new Date())));
 			return Flux	.zip(intervals, movieEvents)
-						.map(Tuple2<Long, MovieEvent>::getT2);
+						.map(Tuple2<Long, MovieEvent>::getT2)
+						.doOnNext(movieEventLog::append);
 		});
 	}
 
+	// Replays the logged events of the movie and follows new ones; a
+	// reconnecting client resumes after the Last-Event-ID it got.
+	// Do curl -i http://localhost:8090/movies/2/movieevents/tail
+	@GetMapping(value = "/{id}/movieevents/tail", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public Flux<ServerSentEvent<MovieEvent>> tailMovieEvents(@PathVariable String id,
+			@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+		return movieEventLog.tail(id, lastEventId)
+							.map(movieEvent -> ServerSentEvent	.builder(movieEvent)
+																.id(movieEvent.getId())
+																.build());
+	}
+
 	// DONE-reactive-webflux-event-stream-07: Add a method that performs the
 	// following
 	// -Use the same array of some names you created above
@@ -119,6 +139,19 @@ public class ReactiveMovieController {
 						.map(Tuple2<Long, NameEvent>::getT2);
 	}
 
+	// Streams movies as they are inserted into the capped collection. New
+	// clients share one tailable cursor; a reconnecting client sends the
+	// Last-Event-ID it got and resumes after that movie, see MovieTailService.
+	// Do curl -i http://localhost:8090/movies/tail
+	@GetMapping(value = "/tail", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public Flux<ServerSentEvent<Movie>> tailMovies(
+			@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+		return movieTailService	.tail(lastEventId)
+								.map(movie -> ServerSentEvent	.builder(movie)
+																.id(movie.getId())
+																.build());
+	}
+
 }
 
 // DONE-reactive-webflux-event-stream-10: Take a look at the TO DO list in the
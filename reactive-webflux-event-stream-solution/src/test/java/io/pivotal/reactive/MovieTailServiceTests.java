@@ -0,0 +1,74 @@
+package io.pivotal.reactive;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * Each tailable cursor reads the capped collection from its oldest movie, as
+ * MongoDB does, so resuming has to skip what was already seen.
+ */
+@RunWith(JUnitPlatform.class)
+class MovieTailServiceTests {
+
+	private final ReactiveMongoOperations operations = mock(ReactiveMongoOperations.class);
+	private final Movie thor = new Movie("thor", "1");
+	// Ids made by different clients, out of order
+	private final Movie avengers = new Movie("avengers", "5c1a7f0e2f8fb814b56fa181");
+	private final Movie ironMan = new Movie("iron man", "0");
+
+	@Test
+	void restartedCursorResumesAfterTheLastMovieSeen() {
+		when(operations.exists(any(Query.class), eq(Movie.class))).thenReturn(Mono.just(true));
+		// The first cursor dies after two movies
+		when(operations.tail(any(Query.class), eq(Movie.class))).thenReturn(Flux.just(thor, avengers),
+				Flux.just(thor, avengers, ironMan)
+					.concatWith(Flux.never()));
+
+		StepVerifier.create(new MovieTailService(operations)	.tail(null)
+																.map(Movie::getTitle))
+					.expectNext("thor", "avengers", "iron man")
+					.thenCancel()
+					.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	void lastEventIdResumesAfterThatMovie() {
+		when(operations.exists(any(Query.class), eq(Movie.class))).thenReturn(Mono.just(true));
+		when(operations.tail(any(Query.class), eq(Movie.class))).thenReturn(Flux	.just(thor, avengers, ironMan)
+																					.concatWith(Flux.never()));
+
+		StepVerifier.create(new MovieTailService(operations)	.tail(avengers.getId())
+																.map(Movie::getTitle))
+					.expectNext("iron man")
+					.thenCancel()
+					.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	void lastEventIdNoLongerInTheCollectionResumesAtTheOldestMovie() {
+		when(operations.exists(any(Query.class), eq(Movie.class))).thenReturn(Mono.just(false));
+		when(operations.tail(any(Query.class), eq(Movie.class))).thenReturn(Flux	.just(avengers, ironMan)
+																					.concatWith(Flux.never()));
+
+		StepVerifier.create(new MovieTailService(operations)	.tail(thor.getId())
+																.map(Movie::getTitle))
+					.expectNext("avengers", "iron man")
+					.thenCancel()
+					.verify(Duration.ofSeconds(5));
+	}
+
+}